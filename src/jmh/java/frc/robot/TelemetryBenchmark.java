@@ -0,0 +1,66 @@
+package frc.robot;
+
+import java.util.concurrent.TimeUnit;
+
+import com.ctre.phoenix6.swerve.SwerveDrivetrain.SwerveDriveState;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+
+/**
+ * One odometry update through {@link Telemetry#telemeterize}, in direct mode (publish on
+ * every update) and decimated mode (snapshot only, published by the notifier).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TelemetryBenchmark {
+    @Param({"0.0", "0.04"})
+    public double publishPeriod;
+
+    private Telemetry telemetry;
+    private final SwerveDriveState state = new SwerveDriveState();
+
+    @Setup
+    public void setup() {
+        HAL.initialize(500, 0);
+        telemetry = new Telemetry(4.5, publishPeriod);
+
+        state.Pose = new Pose2d(3.0, 4.0, Rotation2d.fromDegrees(30.0));
+        state.Speeds = new ChassisSpeeds(1.0, 0.5, 0.2);
+        state.ModuleStates = new SwerveModuleState[4];
+        state.ModuleTargets = new SwerveModuleState[4];
+        state.ModulePositions = new SwerveModulePosition[4];
+        for (int i = 0; i < 4; ++i) {
+            state.ModuleStates[i] = new SwerveModuleState(1.2, Rotation2d.fromDegrees(i * 10.0));
+            state.ModuleTargets[i] = new SwerveModuleState(1.3, Rotation2d.fromDegrees(i * 10.0 + 1.0));
+            state.ModulePositions[i] = new SwerveModulePosition(i * 0.5, Rotation2d.fromDegrees(i * 10.0));
+        }
+        state.OdometryPeriod = 0.004;
+    }
+
+    @Benchmark
+    public void telemeterize() {
+        state.Timestamp += 0.004;
+        telemetry.telemeterize(state);
+    }
+}
@@ -0,0 +1,81 @@
+package frc.robot.experimental;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.wpi.first.math.controller.PIDController;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+
+/**
+ * {@link AlignToPoseCommand#calculateSpeeds}, the calculation in {@link
+ * AlignToPoseCommand#execute()}, on its own and with the SmartDashboard reads and writes
+ * the command makes around it every loop. The command itself needs a drivetrain and vision
+ * subsystem, so the controllers are set up the same way here.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AlignToPoseBenchmark {
+    private final PIDController xController = new PIDController(1.0, 0.0, 0.0);
+    private final PIDController yController = new PIDController(1.0, 0.0, 0.0);
+    private final PIDController rotationController = new PIDController(0.05, 0.0, 0.0);
+    private final Pose2d targetPose = new Pose2d();
+    private final ChassisSpeeds speeds = new ChassisSpeeds();
+    private Pose2d currentPose;
+    private double phase = 0.0;
+
+    @Setup
+    public void setup() {
+        xController.setTolerance(0.02);
+        yController.setTolerance(0.02);
+        rotationController.setTolerance(2.0);
+        rotationController.enableContinuousInput(-180, 180);
+        currentPose = new Pose2d(1.0, 2.0, Rotation2d.fromDegrees(35.0));
+    }
+
+    private double calculate(double verticalOffset, double horizontalOffset, double targetDistance,
+            double maxTranslationSpeed, double maxRotationSpeed) {
+        AlignToPoseCommand.calculateSpeeds(xController, yController, rotationController,
+            verticalOffset, horizontalOffset, currentPose.getRotation().getDegrees(),
+            targetPose.getRotation().getDegrees(), targetDistance, maxTranslationSpeed, maxRotationSpeed, speeds);
+        return speeds.vxMetersPerSecond + speeds.vyMetersPerSecond + speeds.omegaRadiansPerSecond;
+    }
+
+    @Benchmark
+    public double math() {
+        phase = (phase + 0.01) % 1.0;
+        return calculate(phase * 10.0, phase * 5.0 - 2.5, 0.2, 2.0, 2.0);
+    }
+
+    @Benchmark
+    public double mathWithDashboard() {
+        phase = (phase + 0.01) % 1.0;
+        double maxTranslationSpeed = SmartDashboard.getNumber("Align/MaxTranslationSpeed", 2.0);
+        double maxRotationSpeed = SmartDashboard.getNumber("Align/MaxRotationSpeed", 2.0);
+        double targetDistance = SmartDashboard.getNumber("Align/TargetDistance", 0.2);
+        double result = calculate(phase * 10.0, phase * 5.0 - 2.5, targetDistance, maxTranslationSpeed,
+            maxRotationSpeed);
+        SmartDashboard.putNumber("Align/XSpeedCommand", result);
+        SmartDashboard.putNumber("Align/X/Error", xController.getError());
+        SmartDashboard.putNumber("Align/Y/Error", yController.getError());
+        SmartDashboard.putNumber("Align/Rotation/Error", rotationController.getError());
+        SmartDashboard.putBoolean("Align/X/AtSetpoint", xController.atSetpoint());
+        return result;
+    }
+}
@@ -0,0 +1,95 @@
+package frc.robot.subsystems;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import choreo.trajectory.SwerveSample;
+import choreo.trajectory.Trajectory;
+import edu.wpi.first.math.controller.PIDController;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import frc.robot.TrajectoryCache.SampledTrajectory;
+
+/**
+ * The per-update work of {@link CommandSwerveDrivetrain#followPath}, without the hardware.
+ * <p>
+ * {@code choreoFollowPath} is what the main loop does when high-rate following is off:
+ * Choreo interpolates a new sample, then {@link
+ * CommandSwerveDrivetrain#calculatePathSpeeds} corrects it with three PID controllers. {@code
+ * cachedFollowPath} is what {@link TrajectoryFollowRequest} does on each odometry update
+ * with a pre-sampled trajectory.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathFollowingBenchmark {
+    private static final double DURATION = 3.0;
+
+    private Trajectory<SwerveSample> trajectory;
+    private SampledTrajectory sampled;
+    private final TrajectoryFollowRequest followRequest = new TrajectoryFollowRequest(10, 7);
+    private final double[] sample = new double[SampledTrajectory.SAMPLE_SIZE];
+    private final double[] moduleForcesX = new double[4];
+    private final double[] moduleForcesY = new double[4];
+    private final ChassisSpeeds speeds = new ChassisSpeeds();
+
+    private final PIDController xController = new PIDController(10, 0, 0);
+    private final PIDController yController = new PIDController(10, 0, 0);
+    private final PIDController thetaController = new PIDController(7, 0, 0);
+
+    private double time = 0.0;
+
+    @Setup
+    public void setup() {
+        // Two meters forward, accelerating then decelerating, turning a quarter turn
+        List<SwerveSample> samples = new ArrayList<>();
+        for (int i = 0; i <= 150; i++) {
+            double t = i * DURATION / 150;
+            double s = t / DURATION;
+            double[] forces = {10.0 * (1 - 2 * s), 10.0 * (1 - 2 * s), 10.0 * (1 - 2 * s), 10.0 * (1 - 2 * s)};
+            samples.add(new SwerveSample(t, 2.0 * s * s * (3 - 2 * s), 0.0, Math.PI / 2 * s,
+                12.0 * s * (1 - s) / DURATION, 0.0, Math.PI / 2 / DURATION,
+                0.0, 0.0, 0.0, forces, forces.clone()));
+        }
+        trajectory = new Trajectory<>("Benchmark", samples, List.of(), List.of());
+        sampled = new SampledTrajectory(trajectory);
+        thetaController.enableContinuousInput(-Math.PI, Math.PI);
+    }
+
+    private double nextTime() {
+        time += 0.004;
+        if (time > DURATION) {
+            time = 0.0;
+        }
+        return time;
+    }
+
+    @Benchmark
+    public ChassisSpeeds choreoFollowPath() {
+        SwerveSample target = trajectory.sampleAt(nextTime(), false).get();
+        return CommandSwerveDrivetrain.calculatePathSpeeds(target, target.x + 0.05, target.y - 0.05,
+            target.heading + 0.02, xController, yController, thetaController);
+    }
+
+    @Benchmark
+    public ChassisSpeeds cachedFollowPath() {
+        sampled.sample(nextTime(), sample, moduleForcesX, moduleForcesY);
+        followRequest.calculate(sample[SampledTrajectory.X] + 0.05, sample[SampledTrajectory.Y] - 0.05,
+            sample[SampledTrajectory.HEADING] + 0.02, sample, speeds);
+        return speeds;
+    }
+}
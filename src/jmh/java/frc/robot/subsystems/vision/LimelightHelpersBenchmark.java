@@ -0,0 +1,94 @@
+package frc.robot.subsystems.vision;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import frc.robot.subsystems.vision.LimelightHelpers.LimelightResults;
+import frc.robot.subsystems.vision.LimelightHelpers.PoseEstimateBuffer;
+import frc.robot.subsystems.vision.LimelightHelpers.RawFiducial;
+
+/**
+ * Limelight decoding as the vision subsystem runs it every loop: botpose and raw
+ * fiducial arrays straight from NetworkTables and decoded from an array, plus the JSON
+ * results dump the background parser handles.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LimelightHelpersBenchmark {
+    private static final String LIMELIGHT = "limelight-bench";
+
+    // Two tags seen: header, then id, txnc, tync, ta, distToCamera, distToRobot, ambiguity per tag
+    private final double[] botpose = {
+        3.2, 4.1, 0.0, 0.0, 0.0, 172.5, 24.0, 2, 0.4, 2.1, 0.3,
+        7, -4.2, 1.1, 0.35, 2.0, 2.2, 0.05,
+        8, 6.8, 0.9, 0.28, 2.3, 2.5, 0.08
+    };
+    private final double[] rawFiducials = {
+        7, -4.2, 1.1, 0.35, 2.0, 2.2, 0.05,
+        8, 6.8, 0.9, 0.28, 2.3, 2.5, 0.08
+    };
+    private final String json = "{\"pID\":0,\"tl\":22.1,\"cl\":11.4,\"ts\":12345678.9,\"ts_rio\":0,\"v\":1,"
+        + "\"botpose\":[3.2,4.1,0,0,0,172.5],\"botpose_wpiblue\":[11.4,8.2,0,0,0,172.5],"
+        + "\"botpose_wpired\":[5.1,-0.1,0,0,0,-7.5],\"botpose_tagcount\":2,\"botpose_span\":0.4,"
+        + "\"botpose_avgdist\":2.1,\"botpose_avgarea\":0.3,\"t6c_rs\":[0,0,0,0,0,0],"
+        + "\"Fiducial\":[" + fiducialJson(7, -4.2, 1.1) + "," + fiducialJson(8, 6.8, 0.9) + "],"
+        + "\"Retro\":[],\"Classifier\":[],\"Detector\":[],\"Barcode\":[]}";
+
+    private final PoseEstimateBuffer poseEstimate = new PoseEstimateBuffer();
+    private final RawFiducial[] fiducialPool = new RawFiducial[LimelightHelpers.MAX_POOLED_FIDUCIALS];
+
+    private static String fiducialJson(int id, double tx, double ty) {
+        return "{\"fID\":" + id + ",\"fam\":\"36H11C\",\"t6c_ts\":[0.1,0.2,2.0,0,5,0],"
+            + "\"t6r_fs\":[3.2,4.1,0,0,0,172.5],\"t6r_ts\":[0.3,0.1,-2.1,0,-3,0],"
+            + "\"t6t_cs\":[-0.1,-0.2,2.0,0,-5,0],\"t6t_rs\":[0.2,0.4,2.2,0,2,0],"
+            + "\"ta\":0.35,\"tx\":" + tx + ",\"txp\":412.0,\"ty\":" + ty + ",\"typ\":233.0,\"ts\":0.0}";
+    }
+
+    @Setup
+    public void setup() {
+        for (int i = 0; i < fiducialPool.length; i++) {
+            fiducialPool[i] = new RawFiducial();
+        }
+        LimelightHelpers.setLimelightNTDoubleArray(LIMELIGHT, "botpose_orb_wpiblue", botpose);
+        LimelightHelpers.setLimelightNTDoubleArray(LIMELIGHT, "rawfiducials", rawFiducials);
+    }
+
+    @Benchmark
+    public boolean getBotPoseEstimate() {
+        return LimelightHelpers.getBotPoseEstimate(LIMELIGHT, "botpose_orb_wpiblue", poseEstimate);
+    }
+
+    @Benchmark
+    public boolean decodeBotPoseEstimate() {
+        return LimelightHelpers.decodeBotPoseEstimate(botpose, 12_345_678L, poseEstimate);
+    }
+
+    @Benchmark
+    public int getRawFiducials() {
+        return LimelightHelpers.getRawFiducials(LIMELIGHT, fiducialPool);
+    }
+
+    @Benchmark
+    public int decodeRawFiducials() {
+        return LimelightHelpers.decodeRawFiducials(rawFiducials, fiducialPool);
+    }
+
+    @Benchmark
+    public LimelightResults parseResults() {
+        return LimelightHelpers.parseResults(json);
+    }
+}
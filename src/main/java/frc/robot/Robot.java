@@ -4,15 +4,13 @@
 
 package frc.robot;
 
-import org.littletonrobotics.junction.LoggedRobot;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 
-import edu.wpi.first.wpilibj.TimedRobot;
-import edu.wpi.first.wpilibj2.command.Command;
-import edu.wpi.first.wpilibj2.command.CommandScheduler;
-
-import edu.wpi.first.wpilibj.Threads;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import org.littletonrobotics.junction.LogDataReceiver;
 import org.littletonrobotics.junction.LogFileUtil;
 import org.littletonrobotics.junction.LoggedRobot;
 import org.littletonrobotics.junction.Logger;
@@ -21,6 +19,12 @@ import org.littletonrobotics.junction.wpilog.WPILOGReader;
 import org.littletonrobotics.junction.wpilog.WPILOGWriter;
 import org.littletonrobotics.urcl.URCL;
 
+import frc.robot.telemetry.AllocationTracker;
+import frc.robot.telemetry.AsyncDataReceiver;
+import frc.robot.telemetry.AsyncDataReceiver.DropPolicy;
+import frc.robot.telemetry.LogStorageManager;
+import frc.robot.telemetry.LoopProfiler;
+
 
 public class Robot extends LoggedRobot {
   //record metadata
@@ -28,25 +32,39 @@ public class Robot extends LoggedRobot {
 
   private final RobotContainer m_robotContainer;
 
+  // Cycles the USB log writer may fall behind before old ones are dropped (about 5 s)
+  private static final int LOG_QUEUE_CAPACITY = 250;
+  private static final String USB_LOG_PATH = "/U/logs";
+  private final List<AsyncDataReceiver> m_asyncReceivers = new ArrayList<>();
+  private LogStorageManager m_logStorage = null;
+
   public Robot() {
     Logger.recordMetadata("ProjectName", "2025-BabyTaz-main");
   
-    if (isReal()) {
-        Logger.addDataReceiver(new WPILOGWriter()); // Log to a USB stick ("/U/logs"), USB must be plugged into the ROBORIO and be FAT32 formated
-        Logger.addDataReceiver(new NT4Publisher()); // Publish data to NetworkTables
-      //  new PowerDistribution(1, ModuleType.kRev); // Enables power distribution logging
-    } else {
-        setUseTiming(false); // Run as fast as possible
-        String logPath = LogFileUtil.findReplayLog(); // Pull the replay log from AdvantageScope (or prompt the user)
-        Logger.setReplaySource(new WPILOGReader(logPath)); // Read replay log
-        Logger.addDataReceiver(new WPILOGWriter(LogFileUtil.addPathSuffix(logPath, "_sim"))); // Save outputs to a new log
-    }
+    configureLogging();
+
+    // Initialize URCL
+    Logger.registerURCL(URCL.startExternal());
+
+
+    Logger.start(); // Start logging! No more data receivers, replay sources, or metadata values may be added.
     
+
+    m_robotContainer = new RobotContainer();
+  }
+
+  /* Adds each data receiver exactly once, based on the mode */
+  private void configureLogging() {
     switch (Constants.currentMode) {
       case REAL:
-        // Running on a real robot, log to a USB stick ("/U/logs")
-        Logger.addDataReceiver(new WPILOGWriter());
-        Logger.addDataReceiver(new NT4Publisher());
+        // Log to a USB stick ("/U/logs"), USB must be plugged into the ROBORIO and be FAT32 formated.
+        // The stick is written from its own thread so a slow write cannot hold up the loop.
+        addAsyncReceiver("USB", new WPILOGWriter(USB_LOG_PATH), DropPolicy.DROP_OLDEST);
+        // Caps and compresses the USB logs; also points the hoot log there, so it must
+        // exist before Telemetry starts SignalLogger
+        m_logStorage = new LogStorageManager(new File(USB_LOG_PATH));
+        Logger.addDataReceiver(new NT4Publisher()); // Publish data to NetworkTables
+        //  new PowerDistribution(1, ModuleType.kRev); // Enables power distribution logging
         break;
 
       case SIM:
@@ -57,25 +75,33 @@ public class Robot extends LoggedRobot {
       case REPLAY:
         // Replaying a log, set up replay source
         setUseTiming(false); // Run as fast as possible
-        String logPath = LogFileUtil.findReplayLog();
+        String logPath = LogFileUtil.findReplayLog(); // Pull the replay log from AdvantageScope (or prompt the user)
         Logger.setReplaySource(new WPILOGReader(logPath));
-        Logger.addDataReceiver(new WPILOGWriter(LogFileUtil.addPathSuffix(logPath, "_sim")));
+        // Nothing may be dropped from a replay, and nothing is timed, so wait for the disk
+        addAsyncReceiver("Replay", new WPILOGWriter(LogFileUtil.addPathSuffix(logPath, "_sim")), DropPolicy.BLOCK);
         break;
     }
+  }
 
-    // Initialize URCL
-    Logger.registerURCL(URCL.startExternal());
-
-
-    Logger.start(); // Start logging! No more data receivers, replay sources, or metadata values may be added.
-    
-
-    m_robotContainer = new RobotContainer();
+  private void addAsyncReceiver(String name, LogDataReceiver receiver, DropPolicy dropPolicy) {
+    AsyncDataReceiver asyncReceiver = new AsyncDataReceiver(name, receiver, LOG_QUEUE_CAPACITY, dropPolicy);
+    m_asyncReceivers.add(asyncReceiver);
+    Logger.addDataReceiver(asyncReceiver);
   }
 
   @Override
   public void robotPeriodic() {
+    m_robotContainer.getThreadPolicy().update();
+    LoopProfiler.getInstance().startLoop();
     CommandScheduler.getInstance().run(); 
+    LoopProfiler.getInstance().endLoop();
+    AllocationTracker.getInstance().update();
+    for (int i = 0; i < m_asyncReceivers.size(); i++) {
+      m_asyncReceivers.get(i).logMetrics();
+    }
+    if (m_logStorage != null) {
+      m_logStorage.update();
+    }
   }
 
   @Override
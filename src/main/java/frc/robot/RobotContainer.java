@@ -15,6 +15,9 @@ import choreo.auto.AutoChooser; // TODO added Choreo import
 import choreo.auto.AutoFactory; // TODO added Choreo import
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.math.geometry.Translation3d;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
@@ -27,8 +30,13 @@ import frc.robot.commands.AlignToTargetCommand;
 import frc.robot.experimental.AlignToPoseCommand;
 import frc.robot.generated.TunerConstants;
 import frc.robot.subsystems.CommandSwerveDrivetrain;
+import frc.robot.subsystems.WarmupSubsystem;
 import frc.robot.subsystems.led.LEDSubsystem;
 import frc.robot.subsystems.vision.LimelightHelpers;
+import frc.robot.subsystems.vision.LimelightResultsService;
+import frc.robot.subsystems.vision.VisionIO;
+import frc.robot.subsystems.vision.VisionIOLimelight;
+import frc.robot.subsystems.vision.VisionIOSim;
 import frc.robot.subsystems.vision.VisionSubsystem;
 
 public class RobotContainer {
@@ -40,6 +48,14 @@ public class RobotContainer {
     private double MaxAngularRate = RotationsPerSecond.of(0.75).in(RadiansPerSecond); // 3/4 of a rotation per second                                                                                    // max angular velocity
     private final double DEADBAND = 0.1; // 10% deadband
 
+    // Camera mounting relative to robot center. The measured pose is kept in each Limelight's
+    // web UI and never pushed from here; these copies drive simulation and crop prediction,
+    // so update them whenever the Limelight's camera pose is changed.
+    private static final class VisionConstants {
+        static final Transform3d REAR_CAMERA = new Transform3d(
+                new Translation3d(-0.30, 0.0, 0.50), new Rotation3d(0.0, 0.0, Math.PI));
+    }
+
     // Controller setup
     private final CommandXboxController driver = new CommandXboxController(0);
     private final CommandXboxController operator = new CommandXboxController(1);
@@ -47,7 +63,7 @@ public class RobotContainer {
     // Subsystems
     private final CommandSwerveDrivetrain drivetrain = TunerConstants.createDrivetrain();
     private final LEDSubsystem leds = new LEDSubsystem();
-    private final VisionSubsystem vision = new VisionSubsystem("limelight", drivetrain, leds);
+    private final VisionSubsystem vision = new VisionSubsystem(drivetrain, leds, createCameras());
 
     // Drive requests
     private final SwerveRequest.FieldCentric drive = new SwerveRequest.FieldCentric()
@@ -61,20 +77,56 @@ public class RobotContainer {
     /* Auto Related */
     private final AutoFactory autoFactory;
     private final AutoRoutines autoRoutines;
+    private final TrajectoryCache trajectoryCache;
+    private final WarmupSubsystem warmup;
+    private final ThreadPolicy threadPolicy = new ThreadPolicy(drivetrain);
     private final AutoChooser autoChooser = new AutoChooser();
 
-    private final Telemetry logger = new Telemetry(MaxSpeed);
+    private static final double TELEMETRY_PERIOD = 0.04; // seconds; odometry runs at 250 Hz
+    private final Telemetry logger = new Telemetry(MaxSpeed, TELEMETRY_PERIOD);
 
     public RobotContainer() {
         targetPose = new Pose2d(); // Initialize targetPose
         autoFactory = drivetrain.createAutoFactory();
+        // Parse and pre-sample every trajectory now, not when auto starts
+        trajectoryCache = new TrajectoryCache(autoFactory);
+        drivetrain.setTrajectoryCache(trajectoryCache);
         autoRoutines = new AutoRoutines(autoFactory);
 
+        // Exercise hot paths while disabled so the first enabled loops run compiled code
+        warmup = new WarmupSubsystem(drivetrain.getKinematics(), trajectoryCache.get("TwoMeters", false));
+        warmup.addTask(1, autoRoutines::twoMeters); // Loads the Choreo command classes; once is enough
+
         configureAutoRoutines();
         configureBindings();
         configureTelemetry();
 
     }
+
+    private VisionIO[] createCameras() {
+        switch (Constants.currentMode) {
+            case SIM:
+                // Cameras see the field from the true simulated pose, not the fused estimate
+                return new VisionIO[] {
+                    new VisionIOSim(drivetrain::getSimulatedPose, VisionConstants.REAR_CAMERA)
+                };
+
+            case REPLAY:
+                // Inputs come from the log; one no-op IO per camera that was on the robot
+                return new VisionIO[] {
+                    new VisionIO() {}
+                };
+
+            case REAL:
+            default:
+                // The Limelight keeps the camera pose configured in its web UI; the transform
+                // is only used to predict the crop window
+                return new VisionIO[] {
+                    new VisionIOLimelight("limelight", VisionConstants.REAR_CAMERA, false,
+                        new LimelightResultsService("limelight"))
+                };
+        }
+    }
     
     private void configureAutoRoutines() {
         autoChooser.addRoutine("Two Meters", autoRoutines::twoMeters);
@@ -97,8 +149,6 @@ public class RobotContainer {
             )
     
         );
-    
-        drivetrain.registerTelemetry(logger::telemeterize);
     }
 
     private void configureDriverBindings() {
@@ -126,6 +176,10 @@ public class RobotContainer {
         operator.y().onTrue(runOnce(() -> vision.setLeds(true)))
                   .onFalse(runOnce(() -> vision.setLeds(false)));
 
+        // Off by default: the CANdle's built-in animations cost no CAN traffic, the
+        // software engine costs writes every frame but can animate zones separately
+        operator.start().onTrue(runOnce(() -> leds.setSoftwareAnimationsEnabled(!leds.isSoftwareAnimationsEnabled())));
+
     }
     
     private void configureSysIdBindings() {
@@ -148,6 +202,10 @@ public class RobotContainer {
     }
 
 
+    public ThreadPolicy getThreadPolicy() {
+        return threadPolicy;
+    }
+
     public Command getAutonomousCommand() {
         // Return the command to run in autonomous
         return autoChooser.selectedCommand();
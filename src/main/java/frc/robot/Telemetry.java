@@ -4,6 +4,7 @@ import com.ctre.phoenix6.SignalLogger;
 import com.ctre.phoenix6.swerve.SwerveDrivetrain.SwerveDriveState;
 
 import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
 import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
@@ -14,6 +15,7 @@ import edu.wpi.first.networktables.NetworkTableInstance;
 import edu.wpi.first.networktables.StringPublisher;
 import edu.wpi.first.networktables.StructArrayPublisher;
 import edu.wpi.first.networktables.StructPublisher;
+import edu.wpi.first.wpilibj.Notifier;
 import edu.wpi.first.wpilibj.smartdashboard.Mechanism2d;
 import edu.wpi.first.wpilibj.smartdashboard.MechanismLigament2d;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
@@ -23,14 +25,91 @@ import edu.wpi.first.wpilibj.util.Color8Bit;
 public class Telemetry {
     private final double MaxSpeed;
 
+    /* Decimated mode: the odometry thread only snapshots, a notifier publishes */
+    private final Notifier m_publisher;
+    private final Object m_snapshotLock = new Object();
+    private Snapshot m_writeSnapshot = new Snapshot(); // Odometry thread only
+    private Snapshot m_latestSnapshot = new Snapshot(); // Guarded by m_snapshotLock
+    private Snapshot m_readSnapshot = new Snapshot(); // Publisher thread only
+    private boolean m_snapshotFresh = false; // Guarded by m_snapshotLock
+    private boolean m_publisherDemoted = false; // Publisher thread only
+
     /**
-     * Construct a telemetry object, with the specified max speed of the robot
+     * Construct a telemetry object, with the specified max speed of the robot.
+     * Everything is published directly from the odometry thread.
      * 
      * @param maxSpeed Maximum speed in meters per second
      */
     public Telemetry(double maxSpeed) {
+        this(maxSpeed, 0.0);
+    }
+
+    /**
+     * Construct a telemetry object that publishes at a lower rate than odometry runs.
+     * <p>
+     * Each odometry update is copied into a preallocated snapshot and handed to a
+     * notifier that publishes the newest one every {@code publishPeriodSeconds}, so
+     * NetworkTables work no longer runs on the 250 Hz odometry thread. Snapshotting and
+     * publishing reuse the same arrays and structs every time; any remaining allocation is
+     * inside NetworkTables' struct serialization.
+     * 
+     * @param maxSpeed             Maximum speed in meters per second
+     * @param publishPeriodSeconds Publish period, or 0 to publish on every odometry update
+     */
+    public Telemetry(double maxSpeed, double publishPeriodSeconds) {
         MaxSpeed = maxSpeed;
         SignalLogger.start();
+
+        /* Sendables only need to be registered once; later updates go through the ligaments */
+        for (int i = 0; i < 4; ++i) {
+            SmartDashboard.putData("Module " + i, m_moduleMechanisms[i]);
+        }
+        fieldTypePub.set("Field2d");
+
+        if (publishPeriodSeconds > 0.0) {
+            m_publisher = new Notifier(this::publishLatest);
+            m_publisher.setName("Telemetry");
+            m_publisher.startPeriodic(publishPeriodSeconds);
+        } else {
+            m_publisher = null;
+        }
+    }
+
+    /**
+     * Copy of the parts of {@link SwerveDriveState} we publish. Pose2d and Rotation2d are
+     * immutable, so the snapshot keeps references to the state's own instances instead of
+     * copying them; the mutable parts are copied into primitives.
+     */
+    private static final class Snapshot {
+        Pose2d pose = new Pose2d();
+        double vx;
+        double vy;
+        double omega;
+        double timestamp;
+        double odometryPeriod;
+        final Rotation2d[] moduleAngles = new Rotation2d[4];
+        final double[] moduleSpeeds = new double[4];
+        final Rotation2d[] targetAngles = new Rotation2d[4];
+        final double[] targetSpeeds = new double[4];
+        final double[] moduleDistances = new double[4];
+        final Rotation2d[] moduleDistanceAngles = new Rotation2d[4];
+
+        void copyFrom(SwerveDriveState state) {
+            pose = state.Pose;
+            vx = state.Speeds.vxMetersPerSecond;
+            vy = state.Speeds.vyMetersPerSecond;
+            omega = state.Speeds.omegaRadiansPerSecond;
+            timestamp = state.Timestamp;
+            odometryPeriod = state.OdometryPeriod;
+            for (int i = 0; i < 4; ++i) {
+                moduleAngles[i] = state.ModuleStates[i].angle;
+                moduleSpeeds[i] = state.ModuleStates[i].speedMetersPerSecond;
+                targetAngles[i] = state.ModuleTargets[i].angle;
+                targetSpeeds[i] = state.ModuleTargets[i].speedMetersPerSecond;
+                moduleDistances[i] = state.ModulePositions[i].distanceMeters;
+                moduleDistanceAngles[i] = state.ModulePositions[i].angle;
+            }
+        }
     }
 
     /* What to publish over networktables for telemetry */
@@ -81,8 +160,28 @@ public class Telemetry {
     private final double[] m_moduleStatesArray = new double[8];
     private final double[] m_moduleTargetsArray = new double[8];
 
+    /* Reused by the publisher so decimated publishing does not rebuild the structs or arrays */
+    private final double[] m_fieldPoseArray = new double[3];
+    private final ChassisSpeeds m_publishedSpeeds = new ChassisSpeeds();
+    private final SwerveModuleState[] m_publishedStates = newModuleStates();
+    private final SwerveModuleState[] m_publishedTargets = newModuleStates();
+    private final SwerveModulePosition[] m_publishedPositions = new SwerveModulePosition[] {
+        new SwerveModulePosition(), new SwerveModulePosition(), new SwerveModulePosition(), new SwerveModulePosition()
+    };
+
+    private static SwerveModuleState[] newModuleStates() {
+        return new SwerveModuleState[] {
+            new SwerveModuleState(), new SwerveModuleState(), new SwerveModuleState(), new SwerveModuleState()
+        };
+    }
+
     /** Accept the swerve drive state and telemeterize it to SmartDashboard and SignalLogger. */
     public void telemeterize(SwerveDriveState state) {
+        if (m_publisher != null) {
+            snapshot(state);
+            return;
+        }
+
         /* Telemeterize the swerve drive state */
         drivePose.set(state.Pose);
         driveSpeeds.set(state.Speeds);
@@ -109,7 +208,6 @@ public class Telemetry {
         SignalLogger.writeDouble("DriveState/OdometryPeriod", state.OdometryPeriod, "seconds");
 
         /* Telemeterize the pose to a Field2d */
-        fieldTypePub.set("Field2d");
         fieldPub.set(m_poseArray);
 
         /* Telemeterize the module states to a Mechanism2d */
@@ -117,8 +215,86 @@ public class Telemetry {
             m_moduleSpeeds[i].setAngle(state.ModuleStates[i].angle);
             m_moduleDirections[i].setAngle(state.ModuleStates[i].angle);
             m_moduleSpeeds[i].setLength(state.ModuleStates[i].speedMetersPerSecond / (2 * MaxSpeed));
+        }
+    }
 
-            SmartDashboard.putData("Module " + i, m_moduleMechanisms[i]);
+    /**
+     * Runs on the odometry thread in decimated mode. Copies the state, writes the
+     * log file at full rate and hands the copy to the publisher.
+     */
+    private void snapshot(SwerveDriveState state) {
+        m_writeSnapshot.copyFrom(state);
+
+        /* The log file still gets every update; SignalLogger writes are cheap and do not touch NT */
+        m_poseArray[0] = m_writeSnapshot.pose.getX();
+        m_poseArray[1] = m_writeSnapshot.pose.getY();
+        m_poseArray[2] = m_writeSnapshot.pose.getRotation().getDegrees();
+        for (int i = 0; i < 4; ++i) {
+            m_moduleStatesArray[i*2 + 0] = m_writeSnapshot.moduleAngles[i].getRadians();
+            m_moduleStatesArray[i*2 + 1] = m_writeSnapshot.moduleSpeeds[i];
+            m_moduleTargetsArray[i*2 + 0] = m_writeSnapshot.targetAngles[i].getRadians();
+            m_moduleTargetsArray[i*2 + 1] = m_writeSnapshot.targetSpeeds[i];
+        }
+        SignalLogger.writeDoubleArray("DriveState/Pose", m_poseArray);
+        SignalLogger.writeDoubleArray("DriveState/ModuleStates", m_moduleStatesArray);
+        SignalLogger.writeDoubleArray("DriveState/ModuleTargets", m_moduleTargetsArray);
+        SignalLogger.writeDouble("DriveState/OdometryPeriod", state.OdometryPeriod, "seconds");
+
+        /* Swap buffers so the publisher always sees a complete snapshot */
+        synchronized (m_snapshotLock) {
+            Snapshot published = m_latestSnapshot;
+            m_latestSnapshot = m_writeSnapshot;
+            m_writeSnapshot = published;
+            m_snapshotFresh = true;
+        }
+    }
+
+    /** Runs on the publisher notifier in decimated mode. */
+    private void publishLatest() {
+        if (!m_publisherDemoted) {
+            ThreadPolicy.demoteCurrentThread();
+            m_publisherDemoted = true;
+        }
+        synchronized (m_snapshotLock) {
+            if (!m_snapshotFresh) {
+                return;
+            }
+            Snapshot latest = m_latestSnapshot;
+            m_latestSnapshot = m_readSnapshot;
+            m_readSnapshot = latest;
+            m_snapshotFresh = false;
+        }
+
+        Snapshot s = m_readSnapshot;
+        for (int i = 0; i < 4; ++i) {
+            m_publishedStates[i].speedMetersPerSecond = s.moduleSpeeds[i];
+            m_publishedStates[i].angle = s.moduleAngles[i];
+            m_publishedTargets[i].speedMetersPerSecond = s.targetSpeeds[i];
+            m_publishedTargets[i].angle = s.targetAngles[i];
+            m_publishedPositions[i].distanceMeters = s.moduleDistances[i];
+            m_publishedPositions[i].angle = s.moduleDistanceAngles[i];
+        }
+        m_publishedSpeeds.vxMetersPerSecond = s.vx;
+        m_publishedSpeeds.vyMetersPerSecond = s.vy;
+        m_publishedSpeeds.omegaRadiansPerSecond = s.omega;
+
+        drivePose.set(s.pose);
+        driveSpeeds.set(m_publishedSpeeds);
+        driveModuleStates.set(m_publishedStates);
+        driveModuleTargets.set(m_publishedTargets);
+        driveModulePositions.set(m_publishedPositions);
+        driveTimestamp.set(s.timestamp);
+        driveOdometryFrequency.set(1.0 / s.odometryPeriod);
+
+        m_fieldPoseArray[0] = s.pose.getX();
+        m_fieldPoseArray[1] = s.pose.getY();
+        m_fieldPoseArray[2] = s.pose.getRotation().getDegrees();
+        fieldPub.set(m_fieldPoseArray);
+
+        for (int i = 0; i < 4; ++i) {
+            m_moduleSpeeds[i].setAngle(s.moduleAngles[i]);
+            m_moduleDirections[i].setAngle(s.moduleAngles[i]);
+            m_moduleSpeeds[i].setLength(s.moduleSpeeds[i] / (2 * MaxSpeed));
         }
     }
 }
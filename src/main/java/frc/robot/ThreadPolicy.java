@@ -0,0 +1,92 @@
+package frc.robot;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.littletonrobotics.junction.Logger;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.RobotBase;
+import edu.wpi.first.wpilibj.Threads;
+import frc.robot.subsystems.CommandSwerveDrivetrain;
+
+/**
+ * Decides which robot threads run at real-time priority.
+ * <p>
+ * The roboRIO has two cores shared by the main loop, the Phoenix odometry thread, the
+ * NetworkTables and logging threads and our own background workers. While enabled, the
+ * odometry thread (which also runs path following) and the main loop are raised to
+ * real-time priorities so background work cannot delay them. While disabled both go back
+ * to normal so the warm-up tasks and logging get their share of the CPU. Background
+ * threads call {@link #demoteCurrentThread()} when they start so they always stay below
+ * the control threads.
+ * <p>
+ * Linux thread priorities only apply on the roboRIO; in simulation nothing changes.
+ * Thread-to-core affinity cannot be set from Java, so it is left to the scheduler.
+ */
+public class ThreadPolicy {
+    // Odometry sits above the main loop: it closes the drive loops at 250 Hz
+    private static final int ODOMETRY_ENABLED_PRIORITY = 20;
+    private static final int MAIN_ENABLED_PRIORITY = 10;
+    // Phoenix keeps odometry real-time, so "normal" is its lowest real-time level
+    private static final int ODOMETRY_DISABLED_PRIORITY = 1;
+
+    private static final AtomicInteger demotedThreads = new AtomicInteger();
+
+    private final CommandSwerveDrivetrain drivetrain;
+    private final boolean applyPriorities = RobotBase.isReal();
+    private boolean elevated = false;
+    private boolean initialized = false;
+    private int odometryPriority = 0;
+    private boolean mainRealTime = false;
+    private int mainPriority = 0;
+
+    public ThreadPolicy(CommandSwerveDrivetrain drivetrain) {
+        this.drivetrain = drivetrain;
+    }
+
+    /**
+     * Lowers the calling thread below the control threads. Call first thing on logging,
+     * parsing and other background threads.
+     */
+    public static void demoteCurrentThread() {
+        Thread.currentThread().setPriority(Thread.MIN_PRIORITY);
+        if (RobotBase.isReal()) {
+            Threads.setCurrentThreadPriority(false, 0);
+        }
+        demotedThreads.incrementAndGet();
+    }
+
+    /** Call every loop from the main robot thread; switches priorities when the robot is enabled or disabled. */
+    public void update() {
+        boolean enabled = DriverStation.isEnabled();
+        if (!initialized || enabled != elevated) {
+            apply(enabled);
+            initialized = true;
+        }
+
+        Logger.recordOutput("ThreadPolicy/Elevated", elevated);
+        Logger.recordOutput("ThreadPolicy/Main/RealTime", mainRealTime);
+        Logger.recordOutput("ThreadPolicy/Main/Priority", mainPriority);
+        Logger.recordOutput("ThreadPolicy/Odometry/Priority", odometryPriority);
+        Logger.recordOutput("ThreadPolicy/DemotedThreads", demotedThreads.get());
+    }
+
+    private void apply(boolean enable) {
+        elevated = enable;
+        if (applyPriorities) {
+            odometryPriority = enable ? ODOMETRY_ENABLED_PRIORITY : ODOMETRY_DISABLED_PRIORITY;
+            drivetrain.getOdometryThread().setThreadPriority(odometryPriority);
+            if (!Threads.setCurrentThreadPriority(enable, enable ? MAIN_ENABLED_PRIORITY : 0)) {
+                DriverStation.reportWarning("Could not set main thread priority", false);
+            }
+            // Read back what the OS actually gave us
+            mainRealTime = Threads.getCurrentThreadIsRealTime();
+            mainPriority = Threads.getCurrentThreadPriority();
+        }
+        // In simulation everything stays at its default, and the logged values say so
+    }
+
+    public boolean isElevated() {
+        return elevated;
+    }
+}
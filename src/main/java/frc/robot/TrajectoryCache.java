@@ -0,0 +1,182 @@
+package frc.robot;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import choreo.Choreo;
+import choreo.auto.AutoFactory;
+import choreo.trajectory.SwerveSample;
+import choreo.trajectory.Trajectory;
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+
+/**
+ * Every Choreo trajectory in the deploy directory, parsed once and pre-sampled.
+ * <p>
+ * Loading a {@code .traj} means file I/O and JSON parsing, and sampling one interpolates
+ * a new {@link SwerveSample} each call. Both are moved to robot init here: each
+ * trajectory is resampled at a fixed period into primitive arrays, for both alliances,
+ * so a lookup is an index calculation and one interpolation with no allocation.
+ */
+public class TrajectoryCache {
+    private static final double SAMPLE_PERIOD = 0.01; // seconds
+    private static final String TRAJECTORY_EXTENSION = ".traj";
+
+    private final Map<String, SampledTrajectory> blueTrajectories = new HashMap<>();
+    private final Map<String, SampledTrajectory> redTrajectories = new HashMap<>();
+
+    /**
+     * Loads every trajectory under {@code deploy/choreo}, pre-samples it, and warms the
+     * auto factory's own cache so building routines does not touch the disk.
+     *
+     * @param factory Auto factory whose trajectory cache should be filled, or null
+     */
+    public TrajectoryCache(AutoFactory factory) {
+        File[] files = new File(Filesystem.getDeployDirectory(), "choreo")
+            .listFiles((dir, name) -> name.endsWith(TRAJECTORY_EXTENSION));
+        if (files == null) {
+            return;
+        }
+
+        for (File file : files) {
+            String name = file.getName().substring(0, file.getName().length() - TRAJECTORY_EXTENSION.length());
+            Optional<Trajectory<SwerveSample>> trajectory = Choreo.loadTrajectory(name);
+            if (trajectory.isEmpty()) {
+                DriverStation.reportWarning("Could not load trajectory " + name, false);
+                continue;
+            }
+
+            blueTrajectories.put(name, new SampledTrajectory(trajectory.get()));
+            redTrajectories.put(name, new SampledTrajectory(trajectory.get().flipped()));
+            if (factory != null) {
+                factory.cache().loadTrajectory(name);
+            }
+        }
+    }
+
+    /**
+     * Gets a pre-sampled trajectory.
+     *
+     * @param name    Trajectory name, without extension
+     * @param flipped True for the red alliance version
+     * @return The trajectory, or null if it was not in the deploy directory
+     */
+    public SampledTrajectory get(String name, boolean flipped) {
+        return (flipped ? redTrajectories : blueTrajectories).get(name);
+    }
+
+    /** Number of trajectories loaded. */
+    public int size() {
+        return blueTrajectories.size();
+    }
+
+    /** A swerve trajectory resampled at a fixed period into primitive arrays. */
+    public static final class SampledTrajectory {
+        /** Indices into the array filled by {@link #sample}. */
+        public static final int X = 0;
+        public static final int Y = 1;
+        public static final int HEADING = 2;
+        public static final int VX = 3;
+        public static final int VY = 4;
+        public static final int OMEGA = 5;
+        public static final int SAMPLE_SIZE = 6;
+
+        private final String name;
+        private final double totalTime;
+        private final int count;
+        private final int moduleCount;
+        private final double[] xs;
+        private final double[] ys;
+        private final double[] headings;
+        private final double[] vxs;
+        private final double[] vys;
+        private final double[] omegas;
+        private final double[] forcesX; // count * moduleCount, sample-major
+        private final double[] forcesY;
+
+        /** Resamples a trajectory. This allocates and interpolates; do it at init. */
+        public SampledTrajectory(Trajectory<SwerveSample> trajectory) {
+            name = trajectory.name();
+            totalTime = trajectory.getTotalTime();
+            count = (int) Math.ceil(totalTime / SAMPLE_PERIOD) + 1;
+            moduleCount = trajectory.getInitialSample(false)
+                .map(sample -> sample.moduleForcesX().length)
+                .orElse(0);
+
+            xs = new double[count];
+            ys = new double[count];
+            headings = new double[count];
+            vxs = new double[count];
+            vys = new double[count];
+            omegas = new double[count];
+            forcesX = new double[count * moduleCount];
+            forcesY = new double[count * moduleCount];
+
+            for (int i = 0; i < count; i++) {
+                SwerveSample sample = trajectory.sampleAt(Math.min(i * SAMPLE_PERIOD, totalTime), false)
+                    .orElse(null);
+                if (sample == null) {
+                    continue;
+                }
+                xs[i] = sample.x;
+                ys[i] = sample.y;
+                headings[i] = sample.heading;
+                vxs[i] = sample.vx;
+                vys[i] = sample.vy;
+                omegas[i] = sample.omega;
+                System.arraycopy(sample.moduleForcesX(), 0, forcesX, i * moduleCount, moduleCount);
+                System.arraycopy(sample.moduleForcesY(), 0, forcesY, i * moduleCount, moduleCount);
+            }
+
+            // Hold the end pose at rest past the end of the trajectory
+            vxs[count - 1] = 0.0;
+            vys[count - 1] = 0.0;
+            omegas[count - 1] = 0.0;
+        }
+
+        /**
+         * Interpolates the trajectory. Times outside the trajectory are clamped to its ends.
+         *
+         * @param time           Seconds since the trajectory started
+         * @param out            Array of at least {@link #SAMPLE_SIZE} values, indexed by the constants above
+         * @param moduleForcesX  Array of at least {@link #getModuleCount()} field-relative forces, in newtons
+         * @param moduleForcesY  Array of at least {@link #getModuleCount()} field-relative forces, in newtons
+         */
+        public void sample(double time, double[] out, double[] moduleForcesX, double[] moduleForcesY) {
+            double clamped = MathUtil.clamp(time, 0.0, totalTime);
+            int a = Math.min((int) (clamped / SAMPLE_PERIOD), count - 1);
+            int b = Math.min(a + 1, count - 1);
+
+            // The last sample sits at the end of the trajectory, so the last gap can be shorter
+            double start = a * SAMPLE_PERIOD;
+            double end = Math.min(b * SAMPLE_PERIOD, totalTime);
+            double t = end > start ? MathUtil.clamp((clamped - start) / (end - start), 0.0, 1.0) : 0.0;
+
+            out[X] = MathUtil.interpolate(xs[a], xs[b], t);
+            out[Y] = MathUtil.interpolate(ys[a], ys[b], t);
+            out[HEADING] = MathUtil.angleModulus(headings[a] + MathUtil.angleModulus(headings[b] - headings[a]) * t);
+            out[VX] = MathUtil.interpolate(vxs[a], vxs[b], t);
+            out[VY] = MathUtil.interpolate(vys[a], vys[b], t);
+            out[OMEGA] = MathUtil.interpolate(omegas[a], omegas[b], t);
+            for (int i = 0; i < moduleCount; i++) {
+                moduleForcesX[i] = MathUtil.interpolate(forcesX[a * moduleCount + i], forcesX[b * moduleCount + i], t);
+                moduleForcesY[i] = MathUtil.interpolate(forcesY[a * moduleCount + i], forcesY[b * moduleCount + i], t);
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public double getTotalTime() {
+            return totalTime;
+        }
+
+        public int getModuleCount() {
+            return moduleCount;
+        }
+    }
+}
@@ -61,16 +61,22 @@ public class AlignToTargetCommand extends Command {
     public void initialize() {
         // Clear any accumulated integral term
         alignmentPID.reset();
+        // Search only where the tag should be so the Limelight runs faster while aligning
+        vision.setAdaptiveCroppingEnabled(true);
     }
 
     @Override
     public void execute() {
+        // tx corrected for the robot's turn since the frame was captured
+        double targetOffset = vision.getCompensatedHorizontalOffset();
+
         // Debug output
         System.out.println("Vision has target: " + vision.hasTarget());
         System.out.println("Horizontal offset: " + vision.getHorizontalOffset());
         
         // Telemetry for driver feedback and debugging
         SmartDashboard.putNumber("Target Offset", vision.getHorizontalOffset());
+        SmartDashboard.putNumber("Vision/Compensated Offset", targetOffset);
         
         if (vision.hasTarget()) {
             // Update PID gains from dashboard for live tuning
@@ -81,7 +87,7 @@ public class AlignToTargetCommand extends Command {
             
             // Calculate rotation correction
             // Negative offset means target is to the left, positive means to the right
-            double rotationSpeed = alignmentPID.calculate(vision.getHorizontalOffset(), 0);
+            double rotationSpeed = alignmentPID.calculate(targetOffset, 0);
             
             // Prevent excessive rotation speeds
             rotationSpeed = MathUtil.clamp(rotationSpeed, -maxRotationSpeed, maxRotationSpeed);
@@ -116,5 +122,6 @@ public class AlignToTargetCommand extends Command {
             .withVelocityX(0)
             .withVelocityY(0)
             .withRotationalRate(0));
+        vision.setAdaptiveCroppingEnabled(false);
     }
 }
\ No newline at end of file
@@ -6,6 +6,7 @@ import com.ctre.phoenix6.swerve.SwerveRequest;
 
 import edu.wpi.first.math.controller.PIDController;
 import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
 import edu.wpi.first.wpilibj.shuffleboard.BuiltInWidgets;
 import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
 import edu.wpi.first.wpilibj.shuffleboard.ShuffleboardTab;
@@ -35,6 +36,7 @@ public class AlignToPoseCommand extends Command {
 
     // Swerve drive request
     private final SwerveRequest.RobotCentric drive;
+    private final ChassisSpeeds speeds = new ChassisSpeeds();
 
     // Default PID values - will be overridden by SmartDashboard values
     private static final class Defaults {
@@ -180,6 +182,50 @@ public class AlignToPoseCommand extends Command {
                 .withWidget(BuiltInWidgets.kBooleanBox);
     }
 
+    /**
+     * The speeds {@link #execute()} commands, without the subsystems around it. Results are
+     * written into {@code out} so nothing is allocated per loop.
+     */
+    static void calculateSpeeds(PIDController xController, PIDController yController,
+            PIDController rotationController, double verticalOffset, double horizontalOffset,
+            double currentDegrees, double targetDegrees, double targetDistance,
+            double maxTranslationSpeed, double maxRotationSpeed, ChassisSpeeds out) {
+        // Calculate speeds with limits and apply direction multiplier for rear-mounted
+        // Limelight
+        out.vxMetersPerSecond = DIRECTION_MULTIPLIER * Math.min(Math.abs(xController.calculate(
+                verticalOffset, targetDistance)), maxTranslationSpeed);
+
+        out.vyMetersPerSecond = Math.min(Math.abs(yController.calculate(
+                horizontalOffset, 0.0)), maxTranslationSpeed);
+
+        out.omegaRadiansPerSecond = Math.min(Math.abs(rotationController.calculate(
+                currentDegrees, targetDegrees)), maxRotationSpeed);
+    }
+
+    /**
+     * Creates a warm-up task that runs {@link #calculateSpeeds} on its own controllers,
+     * configured like the command's defaults, with inputs that change every call.
+     */
+    public static Runnable createWarmupTask() {
+        PIDController x = new PIDController(Defaults.TRANSLATION_P, Defaults.TRANSLATION_I, Defaults.TRANSLATION_D);
+        PIDController y = new PIDController(Defaults.TRANSLATION_P, Defaults.TRANSLATION_I, Defaults.TRANSLATION_D);
+        PIDController rotation = new PIDController(Defaults.ROTATION_P, Defaults.ROTATION_I, Defaults.ROTATION_D);
+        x.setTolerance(Defaults.TRANSLATION_TOLERANCE);
+        y.setTolerance(Defaults.TRANSLATION_TOLERANCE);
+        rotation.setTolerance(Defaults.ROTATION_TOLERANCE);
+        rotation.enableContinuousInput(-180, 180);
+        ChassisSpeeds out = new ChassisSpeeds();
+        double[] phase = new double[1];
+        return () -> {
+            phase[0] = (phase[0] + 0.013) % 1.0;
+            calculateSpeeds(x, y, rotation, phase[0] * 10.0, phase[0] * 5.0 - 2.5, phase[0] * 360.0 - 180.0,
+                    0.0, Defaults.TARGET_DISTANCE, Defaults.MAX_TRANSLATION_SPEED, Defaults.MAX_ROTATION_SPEED, out);
+            x.atSetpoint();
+            y.atSetpoint();
+            rotation.atSetpoint();
+        };
+    }
+
     @Override
     public void initialize() {
         // Reset controllers when command starts
@@ -215,17 +261,13 @@ public class AlignToPoseCommand extends Command {
         double targetDistance = SmartDashboard.getNumber("Align/TargetDistance",
                 Defaults.TARGET_DISTANCE);
 
-        // Calculate speeds with limits and apply direction multiplier for rear-mounted
-        // Limelight
-        double xSpeed = DIRECTION_MULTIPLIER * Math.min(Math.abs(xController.calculate(
-                vision.getVerticalOffset(), targetDistance)), maxTranslationSpeed);
-
-        double ySpeed = Math.min(Math.abs(yController.calculate(
-                vision.getHorizontalOffset(), 0.0)), maxTranslationSpeed);
-
-        double rotationSpeed = Math.min(Math.abs(rotationController.calculate(
-                currentPose.getRotation().getDegrees(),
-                targetPose.getRotation().getDegrees())), maxRotationSpeed);
+        calculateSpeeds(xController, yController, rotationController,
+                vision.getVerticalOffset(), vision.getHorizontalOffset(),
+                currentPose.getRotation().getDegrees(), targetPose.getRotation().getDegrees(),
+                targetDistance, maxTranslationSpeed, maxRotationSpeed, speeds);
+        double xSpeed = speeds.vxMetersPerSecond;
+        double ySpeed = speeds.vyMetersPerSecond;
+        double rotationSpeed = speeds.omegaRadiansPerSecond;
 
         // Add debug values to SmartDashboard
         SmartDashboard.putNumber("Align/RawVerticalOffset", vision.getVerticalOffset());
@@ -2,6 +2,7 @@ package frc.robot.subsystems;
 
 import static edu.wpi.first.units.Units.*;
 
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 import com.ctre.phoenix6.SignalLogger;
@@ -9,13 +10,19 @@ import com.ctre.phoenix6.Utils;
 import com.ctre.phoenix6.swerve.SwerveDrivetrainConstants;
 import com.ctre.phoenix6.swerve.SwerveModuleConstants;
 import com.ctre.phoenix6.swerve.SwerveRequest;
+import com.ctre.phoenix6.swerve.SwerveDrivetrain.SwerveDriveState;
 
 import choreo.Choreo.TrajectoryLogger;
 import choreo.auto.AutoFactory;
 import choreo.trajectory.SwerveSample;
+import choreo.trajectory.Trajectory;
+import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.Matrix;
 import edu.wpi.first.math.controller.PIDController;
+import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveDriveOdometry;
 import edu.wpi.first.math.numbers.N1;
 import edu.wpi.first.math.numbers.N3;
 import edu.wpi.first.wpilibj.DriverStation;
@@ -26,7 +33,10 @@ import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.Subsystem;
 import edu.wpi.first.wpilibj2.command.sysid.SysIdRoutine;
 
+import frc.robot.TrajectoryCache;
+import frc.robot.TrajectoryCache.SampledTrajectory;
 import frc.robot.generated.TunerConstants.TunerSwerveDrivetrain;
+import frc.robot.telemetry.LoopProfiler;
 
 /**
  * Class that extends the Phoenix 6 SwerveDrivetrain class and implements
@@ -36,6 +46,9 @@ public class CommandSwerveDrivetrain extends TunerSwerveDrivetrain implements Su
     private static final double kSimLoopPeriod = 0.005; // 5 ms
     private Notifier m_simNotifier = null;
     private double m_lastSimTime;
+    /* Odometry from the simulated modules alone, the ground truth simulated cameras see */
+    private final Object m_simOdometryLock = new Object();
+    private SwerveDriveOdometry m_simOdometry = null; // Guarded by m_simOdometryLock
 
     /* Blue alliance sees forward as 0 degrees (toward red alliance wall) */
     private static final Rotation2d kBlueAlliancePerspectiveRotation = Rotation2d.kZero;
@@ -44,12 +57,28 @@ public class CommandSwerveDrivetrain extends TunerSwerveDrivetrain implements Su
     /* Keep track if we've ever applied the operator perspective before or not */
     private boolean m_hasAppliedOperatorPerspective = false;
 
+    private final LoopProfiler m_profiler = LoopProfiler.getInstance();
+    private final int m_profilerSection = m_profiler.register("CommandSwerveDrivetrain");
+
+    /* Pose and gyro history, filled on the odometry thread, for latency compensation */
+    private static final int kPoseHistoryCapacity = 500; // 2 s at 250 Hz
+    private final PoseHistory m_poseHistory = new PoseHistory(kPoseHistoryCapacity);
+    private final double[] m_historySample = new double[PoseHistory.SAMPLE_SIZE];
+    private final double[] m_latestSample = new double[PoseHistory.SAMPLE_SIZE];
+    /* User telemetry, called after the history is updated */
+    private volatile Consumer<SwerveDriveState> m_telemetryFunction = null;
+
     /** Swerve request to apply during field-centric path following */
     private final SwerveRequest.ApplyFieldSpeeds m_pathApplyFieldSpeeds = new SwerveRequest.ApplyFieldSpeeds();
     private final PIDController m_pathXController = new PIDController(10, 0, 0);
     private final PIDController m_pathYController = new PIDController(10, 0, 0);
     private final PIDController m_pathThetaController = new PIDController(7, 0, 0);
 
+    /* High-rate path following: the same gains, closed on the odometry thread */
+    private final TrajectoryFollowRequest m_trajectoryFollowRequest = new TrajectoryFollowRequest(10, 7);
+    private boolean m_highRatePathFollowing = true;
+    private TrajectoryCache m_trajectoryCache = null;
+
     /* Swerve requests to apply during SysId characterization */
     private final SwerveRequest.SysIdSwerveTranslation m_translationCharacterization = new SwerveRequest.SysIdSwerveTranslation();
     private final SwerveRequest.SysIdSwerveSteerGains m_steerCharacterization = new SwerveRequest.SysIdSwerveSteerGains();
@@ -132,6 +161,7 @@ public class CommandSwerveDrivetrain extends TunerSwerveDrivetrain implements Su
         SwerveModuleConstants<?, ?, ?>... modules
     ) {
         super(drivetrainConstants, modules);
+        super.registerTelemetry(this::onOdometryUpdate);
         if (Utils.isSimulation()) {
             startSimThread();
         }
@@ -156,6 +186,7 @@ public class CommandSwerveDrivetrain extends TunerSwerveDrivetrain implements Su
         SwerveModuleConstants<?, ?, ?>... modules
     ) {
         super(drivetrainConstants, odometryUpdateFrequency, modules);
+        super.registerTelemetry(this::onOdometryUpdate);
         if (Utils.isSimulation()) {
             startSimThread();
         }
@@ -188,6 +219,7 @@ public class CommandSwerveDrivetrain extends TunerSwerveDrivetrain implements Su
         SwerveModuleConstants<?, ?, ?>... modules
     ) {
         super(drivetrainConstants, odometryUpdateFrequency, odometryStandardDeviation, visionStandardDeviation, modules);
+        super.registerTelemetry(this::onOdometryUpdate);
         if (Utils.isSimulation()) {
             startSimThread();
         }
@@ -216,10 +248,59 @@ public class CommandSwerveDrivetrain extends TunerSwerveDrivetrain implements Su
             this::followPath,
             true,
             this,
-            trajLogger
+            (trajectory, isStart) -> {
+                onTrajectoryEvent(trajectory, isStart);
+                trajLogger.accept(trajectory, isStart);
+            }
         );
     }
 
+    /**
+     * Chooses whether trajectories are tracked on the odometry thread (the default) or
+     * only when Choreo samples them from the main loop.
+     *
+     * @param enabled True to close the path-following loop at the odometry rate
+     */
+    public void setHighRatePathFollowing(boolean enabled) {
+        m_highRatePathFollowing = enabled;
+    }
+
+    /**
+     * Gets the request used for high-rate path following, for telemetry.
+     *
+     * @return Request that tracks the active trajectory on the odometry thread
+     */
+    public TrajectoryFollowRequest getTrajectoryFollowRequest() {
+        return m_trajectoryFollowRequest;
+    }
+
+    /**
+     * Sets the cache high-rate path following looks trajectories up in. Trajectories
+     * missing from the cache are sampled when they start instead.
+     *
+     * @param cache Pre-sampled trajectories
+     */
+    public void setTrajectoryCache(TrajectoryCache cache) {
+        m_trajectoryCache = cache;
+    }
+
+    /* Choreo reports the trajectory (already flipped for the alliance) as it starts and stops */
+    private void onTrajectoryEvent(Trajectory<SwerveSample> trajectory, boolean isStart) {
+        if (isStart) {
+            boolean flipped = DriverStation.getAlliance().orElse(Alliance.Blue) == Alliance.Red;
+            SampledTrajectory sampled = m_trajectoryCache != null
+                ? m_trajectoryCache.get(trajectory.name(), flipped)
+                : null;
+            if (sampled == null) {
+                sampled = new SampledTrajectory(trajectory);
+            }
+            m_trajectoryFollowRequest.withTrajectory(sampled, Utils.getCurrentTimeSeconds());
+        } else {
+            /* Stop tracking; the request commands zero speed until something else takes over */
+            m_trajectoryFollowRequest.withTrajectory(null, 0.0);
+        }
+    }
+
     /**
      * Returns a command that applies the specified control request to this swerve drivetrain.
      *
@@ -231,24 +312,25 @@ public class CommandSwerveDrivetrain extends TunerSwerveDrivetrain implements Su
     }
 
     /**
-     * Follows the given field-centric path sample with PID.
+     * Follows the given field-centric path sample with PID. In high-rate mode the sample
+     * only keeps the trajectory request applied; tracking happens on the odometry thread.
      *
      * @param sample Sample along the path to follow
      */
     public void followPath(SwerveSample sample) {
+        if (m_highRatePathFollowing && m_trajectoryFollowRequest.hasTrajectory()) {
+            /* The request samples and tracks the trajectory itself on every odometry update */
+            setControl(m_trajectoryFollowRequest);
+            return;
+        }
+
         m_pathThetaController.enableContinuousInput(-Math.PI, Math.PI);
 
         var pose = getState().Pose;
 
-        var targetSpeeds = sample.getChassisSpeeds();
-        targetSpeeds.vxMetersPerSecond += m_pathXController.calculate(
-            pose.getX(), sample.x
-        );
-        targetSpeeds.vyMetersPerSecond += m_pathYController.calculate(
-            pose.getY(), sample.y
-        );
-        targetSpeeds.omegaRadiansPerSecond += m_pathThetaController.calculate(
-            pose.getRotation().getRadians(), sample.heading
+        var targetSpeeds = calculatePathSpeeds(
+            sample, pose.getX(), pose.getY(), pose.getRotation().getRadians(),
+            m_pathXController, m_pathYController, m_pathThetaController
         );
 
         setControl(
@@ -258,6 +340,105 @@ public class CommandSwerveDrivetrain extends TunerSwerveDrivetrain implements Su
         );
     }
 
+    /**
+     * The field-centric speeds {@link #followPath} applies when high-rate following is off:
+     * the sample's speeds plus a PID correction towards the sample on each axis.
+     *
+     * @param sample  Sample along the path to follow
+     * @param x       Current field X in meters
+     * @param y       Current field Y in meters
+     * @param heading Current heading in radians
+     * @return Speeds to apply
+     */
+    static ChassisSpeeds calculatePathSpeeds(SwerveSample sample, double x, double y, double heading,
+            PIDController xController, PIDController yController, PIDController thetaController) {
+        var targetSpeeds = sample.getChassisSpeeds();
+        targetSpeeds.vxMetersPerSecond += xController.calculate(x, sample.x);
+        targetSpeeds.vyMetersPerSecond += yController.calculate(y, sample.y);
+        targetSpeeds.omegaRadiansPerSecond += thetaController.calculate(heading, sample.heading);
+        return targetSpeeds;
+    }
+
+    /**
+     * Registers a telemetry function called with the drivetrain state on every odometry
+     * update. The pose history is recorded before the function is called.
+     *
+     * @param telemetryFunction Function to call, or null to remove it
+     */
+    @Override
+    public void registerTelemetry(Consumer<SwerveDriveState> telemetryFunction) {
+        m_telemetryFunction = telemetryFunction;
+    }
+
+    /* Runs on the odometry thread */
+    private void onOdometryUpdate(SwerveDriveState state) {
+        m_poseHistory.add(
+            state.Timestamp,
+            state.Pose.getX(),
+            state.Pose.getY(),
+            state.Pose.getRotation().getRadians(),
+            state.RawHeading.getRadians(),
+            state.Speeds.omegaRadiansPerSecond
+        );
+
+        var telemetryFunction = m_telemetryFunction;
+        if (telemetryFunction != null) {
+            telemetryFunction.accept(state);
+        }
+    }
+
+    /**
+     * Gets the pose and gyro history recorded on the odometry thread.
+     * Timestamps are in the {@link Utils#getCurrentTimeSeconds()} time base.
+     *
+     * @return Pose history of this drivetrain
+     */
+    public PoseHistory getPoseHistory() {
+        return m_poseHistory;
+    }
+
+    /**
+     * Gets the simulated robot's true pose: odometry from the simulated modules alone,
+     * unaffected by vision. Simulated cameras must see this rather than the fused
+     * estimate, or their own noise would steer where they report the robot to be.
+     *
+     * @return True pose in simulation, or the estimated pose on a real robot
+     */
+    public Pose2d getSimulatedPose() {
+        synchronized (m_simOdometryLock) {
+            return m_simOdometry != null ? m_simOdometry.getPoseMeters() : getState().Pose;
+        }
+    }
+
+    /** Resets the estimated pose, and in simulation moves the robot there. */
+    @Override
+    public void resetPose(Pose2d pose) {
+        super.resetPose(pose);
+        synchronized (m_simOdometryLock) {
+            if (m_simOdometry != null) {
+                SwerveDriveState state = getStateCopy();
+                m_simOdometry.resetPosition(state.RawHeading, state.ModulePositions, pose);
+            }
+        }
+    }
+
+    /**
+     * Gets how far the gyro heading has turned between an FPGA timestamp (such as a
+     * vision capture time) and the latest odometry update. Main thread only.
+     *
+     * @param fpgaTimestampSeconds Past time, in the FPGA time base
+     * @return Heading change in degrees, counterclockwise positive, or 0 with no history
+     */
+    public double getHeadingChangeSince(double fpgaTimestampSeconds) {
+        if (!m_poseHistory.sample(Utils.fpgaToCurrentTime(fpgaTimestampSeconds), m_historySample)
+                || !m_poseHistory.latest(m_latestSample)) {
+            return 0.0;
+        }
+        return Math.toDegrees(MathUtil.angleModulus(
+            m_latestSample[PoseHistory.GYRO_YAW] - m_historySample[PoseHistory.GYRO_YAW]
+        ));
+    }
+
     /**
      * Runs the SysId Quasistatic test in the given direction for the routine
      * specified by {@link #m_sysIdRoutineToApply}.
@@ -282,6 +463,7 @@ public class CommandSwerveDrivetrain extends TunerSwerveDrivetrain implements Su
 
     @Override
     public void periodic() {
+        m_profiler.begin(m_profilerSection);
         /*
          * Periodically try to apply the operator perspective.
          * If we haven't applied the operator perspective before, then we should apply it regardless of DS state.
@@ -299,10 +481,16 @@ public class CommandSwerveDrivetrain extends TunerSwerveDrivetrain implements Su
                 m_hasAppliedOperatorPerspective = true;
             });
         }
+        m_profiler.end(m_profilerSection);
     }
 
     private void startSimThread() {
         m_lastSimTime = Utils.getCurrentTimeSeconds();
+        SwerveDriveState initialState = getStateCopy();
+        synchronized (m_simOdometryLock) {
+            m_simOdometry = new SwerveDriveOdometry(getKinematics(),
+                initialState.RawHeading, initialState.ModulePositions, initialState.Pose);
+        }
 
         /* Run simulation at a faster rate so PID gains behave more reasonably */
         m_simNotifier = new Notifier(() -> {
@@ -312,6 +500,11 @@ public class CommandSwerveDrivetrain extends TunerSwerveDrivetrain implements Su
 
             /* use the measured time delta, get battery voltage from WPILib */
             updateSimState(deltaTime, RobotController.getBatteryVoltage());
+
+            SwerveDriveState state = getStateCopy();
+            synchronized (m_simOdometryLock) {
+                m_simOdometry.update(state.RawHeading, state.ModulePositions);
+            }
         });
         m_simNotifier.startPeriodic(kSimLoopPeriod);
     }
@@ -0,0 +1,166 @@
+package frc.robot.subsystems;
+
+import edu.wpi.first.math.MathUtil;
+
+/**
+ * Fixed-capacity, time-indexed history of robot pose and gyro heading.
+ * <p>
+ * Written by the odometry thread every update and read by commands that need to know
+ * where the robot was when a (latent) sensor measurement was taken. Samples live in
+ * preallocated primitive arrays used as a ring buffer, lookups are a binary search
+ * followed by linear interpolation, and nothing allocates after construction.
+ * <p>
+ * Timestamps are in the same time base as {@code SwerveDriveState.Timestamp}
+ * (see {@code Utils.getCurrentTimeSeconds()}).
+ */
+public class PoseHistory {
+    /** Indices into the array filled by {@link #sample(double, double[])}. */
+    public static final int X = 0;
+    public static final int Y = 1;
+    public static final int POSE_YAW = 2;
+    public static final int GYRO_YAW = 3;
+    public static final int YAW_RATE = 4;
+    public static final int SAMPLE_SIZE = 5;
+
+    private final int capacity;
+    private final double[] timestamps;
+    private final double[] xs;
+    private final double[] ys;
+    private final double[] poseYaws; // radians
+    private final double[] gyroYaws; // radians
+    private final double[] yawRates; // radians per second
+
+    // Physical index of the oldest sample and number of valid samples
+    private int start = 0;
+    private int size = 0;
+
+    /**
+     * @param capacity Number of samples kept; at 250 Hz, 500 samples cover two seconds
+     */
+    public PoseHistory(int capacity) {
+        this.capacity = capacity;
+        timestamps = new double[capacity];
+        xs = new double[capacity];
+        ys = new double[capacity];
+        poseYaws = new double[capacity];
+        gyroYaws = new double[capacity];
+        yawRates = new double[capacity];
+    }
+
+    /**
+     * Records a sample. Samples must arrive in increasing timestamp order; out-of-order
+     * samples are ignored.
+     */
+    public synchronized void add(double timestamp, double x, double y,
+            double poseYawRadians, double gyroYawRadians, double yawRateRadiansPerSecond) {
+        if (size > 0 && timestamp <= timestamps[physical(size - 1)]) {
+            return;
+        }
+
+        int index;
+        if (size < capacity) {
+            index = physical(size);
+            size++;
+        } else {
+            // Overwrite the oldest sample
+            index = start;
+            start = (start + 1) % capacity;
+        }
+
+        timestamps[index] = timestamp;
+        xs[index] = x;
+        ys[index] = y;
+        poseYaws[index] = poseYawRadians;
+        gyroYaws[index] = gyroYawRadians;
+        yawRates[index] = yawRateRadiansPerSecond;
+    }
+
+    /**
+     * Interpolates the history at the given time. Times outside the buffer are clamped
+     * to the oldest or newest sample.
+     *
+     * @param timestamp Time to look up
+     * @param out       Array of at least {@link #SAMPLE_SIZE} values, indexed by the constants above
+     * @return false if the history is empty and {@code out} was not written
+     */
+    public synchronized boolean sample(double timestamp, double[] out) {
+        if (size == 0) {
+            return false;
+        }
+
+        // Find the last sample at or before the timestamp
+        int lower = 0;
+        int upper = size - 1;
+        if (timestamp <= timestamps[physical(0)]) {
+            copySample(physical(0), out);
+            return true;
+        }
+        if (timestamp >= timestamps[physical(upper)]) {
+            copySample(physical(upper), out);
+            return true;
+        }
+        while (upper - lower > 1) {
+            int mid = (lower + upper) >>> 1;
+            if (timestamps[physical(mid)] <= timestamp) {
+                lower = mid;
+            } else {
+                upper = mid;
+            }
+        }
+
+        int a = physical(lower);
+        int b = physical(upper);
+        double t = (timestamp - timestamps[a]) / (timestamps[b] - timestamps[a]);
+        out[X] = MathUtil.interpolate(xs[a], xs[b], t);
+        out[Y] = MathUtil.interpolate(ys[a], ys[b], t);
+        out[POSE_YAW] = interpolateAngle(poseYaws[a], poseYaws[b], t);
+        out[GYRO_YAW] = interpolateAngle(gyroYaws[a], gyroYaws[b], t);
+        out[YAW_RATE] = MathUtil.interpolate(yawRates[a], yawRates[b], t);
+        return true;
+    }
+
+    /** Copies the newest sample into {@code out}. */
+    public synchronized boolean latest(double[] out) {
+        if (size == 0) {
+            return false;
+        }
+        copySample(physical(size - 1), out);
+        return true;
+    }
+
+    /** Timestamp of the newest sample, or NaN if empty. */
+    public synchronized double getLatestTimestamp() {
+        return size == 0 ? Double.NaN : timestamps[physical(size - 1)];
+    }
+
+    /** Timestamp of the oldest sample, or NaN if empty. */
+    public synchronized double getOldestTimestamp() {
+        return size == 0 ? Double.NaN : timestamps[start];
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized void clear() {
+        start = 0;
+        size = 0;
+    }
+
+    private int physical(int logicalIndex) {
+        return (start + logicalIndex) % capacity;
+    }
+
+    private void copySample(int index, double[] out) {
+        out[X] = xs[index];
+        out[Y] = ys[index];
+        out[POSE_YAW] = poseYaws[index];
+        out[GYRO_YAW] = gyroYaws[index];
+        out[YAW_RATE] = yawRates[index];
+    }
+
+    // Interpolates along the shortest arc so a wrap at +/-pi does not sweep the long way round
+    private static double interpolateAngle(double a, double b, double t) {
+        return MathUtil.angleModulus(a + MathUtil.angleModulus(b - a) * t);
+    }
+}
@@ -0,0 +1,145 @@
+package frc.robot.subsystems;
+
+import com.ctre.phoenix6.StatusCode;
+import com.ctre.phoenix6.swerve.SwerveDrivetrain.SwerveControlParameters;
+import com.ctre.phoenix6.swerve.SwerveModule;
+import com.ctre.phoenix6.swerve.SwerveRequest;
+
+import edu.wpi.first.math.controller.PIDController;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import frc.robot.TrajectoryCache.SampledTrajectory;
+
+/**
+ * Swerve request that follows a pre-sampled Choreo trajectory from inside the odometry loop.
+ * <p>
+ * Phoenix applies the active request on the odometry thread every update (250 Hz on
+ * CAN FD), handing it the pose it just computed. This request samples the trajectory at
+ * that update's timestamp, closes the loop on that pose and forwards the result, with the
+ * sample's module force feedforwards, to an {@link SwerveRequest.ApplyFieldSpeeds}. The
+ * main loop only has to hand over the trajectory when it starts.
+ * <p>
+ * The trajectory is swapped in from the main thread and read on the odometry thread;
+ * everything else, including the PID controllers, is touched only by the odometry thread.
+ */
+public class TrajectoryFollowRequest implements SwerveRequest {
+    /** A trajectory and the time (in the {@code Utils.getCurrentTimeSeconds()} base) it started. */
+    private static final class ActiveTrajectory {
+        final SampledTrajectory trajectory;
+        final double startTime;
+
+        ActiveTrajectory(SampledTrajectory trajectory, double startTime) {
+            this.trajectory = trajectory;
+            this.startTime = startTime;
+        }
+    }
+
+    private static final double[] NO_FEEDFORWARDS = new double[0];
+
+    private final PIDController xController;
+    private final PIDController yController;
+    private final PIDController thetaController;
+    private final SwerveRequest.ApplyFieldSpeeds applyFieldSpeeds = new SwerveRequest.ApplyFieldSpeeds();
+    private final ChassisSpeeds targetSpeeds = new ChassisSpeeds();
+
+    // Odometry thread scratch for the current sample
+    private final double[] sample = new double[SampledTrajectory.SAMPLE_SIZE];
+    private double[] moduleForcesX = NO_FEEDFORWARDS;
+    private double[] moduleForcesY = NO_FEEDFORWARDS;
+
+    private volatile ActiveTrajectory active = null;
+    private ActiveTrajectory lastApplied = null; // Odometry thread only
+
+    // Last tracking error, for telemetry
+    private volatile double lastErrorMeters = 0.0;
+    private volatile double lastHeadingErrorRadians = 0.0;
+
+    public TrajectoryFollowRequest(double translationKP, double headingKP) {
+        xController = new PIDController(translationKP, 0, 0);
+        yController = new PIDController(translationKP, 0, 0);
+        thetaController = new PIDController(headingKP, 0, 0);
+        thetaController.enableContinuousInput(-Math.PI, Math.PI);
+    }
+
+    /**
+     * Starts following a trajectory. Call from the main thread.
+     *
+     * @param trajectory Trajectory to follow, already flipped for the alliance, or null to stop
+     * @param startTime  Time the trajectory starts, in the {@code Utils.getCurrentTimeSeconds()} base
+     */
+    public TrajectoryFollowRequest withTrajectory(SampledTrajectory trajectory, double startTime) {
+        active = trajectory == null ? null : new ActiveTrajectory(trajectory, startTime);
+        return this;
+    }
+
+    /** True while a trajectory has been handed over. */
+    public boolean hasTrajectory() {
+        return active != null;
+    }
+
+    @Override
+    public StatusCode apply(SwerveControlParameters parameters, SwerveModule<?, ?, ?>... modulesToApply) {
+        ActiveTrajectory current = active;
+        if (current == null) {
+            targetSpeeds.vxMetersPerSecond = 0.0;
+            targetSpeeds.vyMetersPerSecond = 0.0;
+            targetSpeeds.omegaRadiansPerSecond = 0.0;
+            return applyFieldSpeeds.withSpeeds(targetSpeeds)
+                .withWheelForceFeedforwardsX(NO_FEEDFORWARDS)
+                .withWheelForceFeedforwardsY(NO_FEEDFORWARDS)
+                .apply(parameters, modulesToApply);
+        }
+
+        if (current != lastApplied) {
+            // New trajectory: drop controller state from the previous one
+            xController.reset();
+            yController.reset();
+            thetaController.reset();
+            if (moduleForcesX.length != current.trajectory.getModuleCount()) {
+                moduleForcesX = new double[current.trajectory.getModuleCount()];
+                moduleForcesY = new double[current.trajectory.getModuleCount()];
+            }
+            lastApplied = current;
+        }
+
+        // Past the end this returns the final pose at rest, so the robot holds it
+        current.trajectory.sample(parameters.timestamp - current.startTime, sample, moduleForcesX, moduleForcesY);
+
+        calculate(parameters.currentPose.getX(), parameters.currentPose.getY(),
+            parameters.currentPose.getRotation().getRadians(), sample, targetSpeeds);
+
+        boolean hasForces = moduleForcesX.length == modulesToApply.length;
+        return applyFieldSpeeds.withSpeeds(targetSpeeds)
+            .withWheelForceFeedforwardsX(hasForces ? moduleForcesX : NO_FEEDFORWARDS)
+            .withWheelForceFeedforwardsY(hasForces ? moduleForcesY : NO_FEEDFORWARDS)
+            .apply(parameters, modulesToApply);
+    }
+
+    /**
+     * Computes the field-relative speeds that track {@code sample} from the given pose.
+     * Kept separate from {@link #apply} so it can be exercised without a drivetrain.
+     *
+     * @param sample Sample filled by {@link SampledTrajectory#sample}
+     * @param out    Speeds to overwrite with the result
+     */
+    public void calculate(double x, double y, double headingRadians, double[] sample, ChassisSpeeds out) {
+        double targetX = sample[SampledTrajectory.X];
+        double targetY = sample[SampledTrajectory.Y];
+        out.vxMetersPerSecond = sample[SampledTrajectory.VX] + xController.calculate(x, targetX);
+        out.vyMetersPerSecond = sample[SampledTrajectory.VY] + yController.calculate(y, targetY);
+        out.omegaRadiansPerSecond = sample[SampledTrajectory.OMEGA]
+            + thetaController.calculate(headingRadians, sample[SampledTrajectory.HEADING]);
+
+        lastErrorMeters = Math.hypot(targetX - x, targetY - y);
+        lastHeadingErrorRadians = thetaController.getError();
+    }
+
+    /** Distance from the last sample to the pose it was tracked from, in meters. */
+    public double getLastErrorMeters() {
+        return lastErrorMeters;
+    }
+
+    /** Heading error at the last update, in radians. */
+    public double getLastHeadingErrorRadians() {
+        return lastHeadingErrorRadians;
+    }
+}
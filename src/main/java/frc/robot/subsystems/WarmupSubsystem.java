@@ -0,0 +1,190 @@
+package frc.robot.subsystems;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.littletonrobotics.junction.Logger;
+
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.apriltag.AprilTagFields;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.math.geometry.Translation3d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.robot.TrajectoryCache.SampledTrajectory;
+import frc.robot.experimental.AlignToPoseCommand;
+import frc.robot.subsystems.vision.LimelightCropPredictor;
+import frc.robot.subsystems.vision.LimelightHelpers;
+import frc.robot.subsystems.vision.LimelightHelpers.PoseEstimateBuffer;
+import frc.robot.subsystems.vision.VisionIO;
+import frc.robot.telemetry.LoopProfiler;
+
+/**
+ * Runs the robot's hot code paths against dummy state while disabled.
+ * <p>
+ * The first time path following, alignment or vision decoding runs, the JVM has to load
+ * its classes and interpret it before the JIT compiles it, which costs tens of milliseconds
+ * at the start of auto and teleop. This subsystem spends a small slice of each disabled
+ * loop calling the same code on private copies of the controllers and buffers, never on
+ * the real drivetrain, cameras or LEDs, until each task has run enough times to be compiled.
+ * <p>
+ * Drivetrain telemetry is not warmed here: the odometry thread already calls it at 250 Hz
+ * from boot, and running it again would publish dummy poses to NetworkTables and the log.
+ */
+public class WarmupSubsystem extends SubsystemBase {
+    private static final double MAX_MILLIS_PER_LOOP = 4.0;
+    private static final int MATH_ITERATIONS = 20000; // Past the C2 compile threshold
+    private static final double ODOMETRY_PERIOD = 0.004; // seconds
+
+    /** A piece of code to run a number of times. */
+    private static final class Task {
+        final int iterations;
+        final Runnable body;
+        int completed = 0;
+
+        Task(int iterations, Runnable body) {
+            this.iterations = iterations;
+            this.body = body;
+        }
+    }
+
+    private final LoopProfiler profiler = LoopProfiler.getInstance();
+    private final int profilerSection = profiler.register("WarmupSubsystem");
+    private final List<Task> tasks = new ArrayList<>();
+    private int totalIterations = 0;
+    private int completedIterations = 0;
+    private boolean complete = false;
+    private double elapsedMillis = 0.0;
+
+    // Private state the built-in tasks work on
+    private final TrajectoryFollowRequest followRequest = new TrajectoryFollowRequest(10, 7);
+    private final double[] followSample = new double[SampledTrajectory.SAMPLE_SIZE];
+    private final ChassisSpeeds speeds = new ChassisSpeeds();
+    private final PoseHistory poseHistory = new PoseHistory(64);
+    private final double[] historySample = new double[PoseHistory.SAMPLE_SIZE];
+    private final double[] botposeArray = new double[11 + 7 * 2];
+    private final PoseEstimateBuffer poseEstimate = new PoseEstimateBuffer();
+    private double phase = 0.0;
+    private double time = 0.0; // Never wraps, so the pose history keeps accepting samples
+
+    public WarmupSubsystem(SwerveDriveKinematics kinematics, SampledTrajectory trajectory) {
+        if (trajectory != null) {
+            double[] moduleForcesX = new double[trajectory.getModuleCount()];
+            double[] moduleForcesY = new double[trajectory.getModuleCount()];
+            addTask(MATH_ITERATIONS, () -> {
+                trajectory.sample(phase * trajectory.getTotalTime(), followSample, moduleForcesX, moduleForcesY);
+                followRequest.calculate(followSample[SampledTrajectory.X] + 0.05,
+                    followSample[SampledTrajectory.Y] - 0.05, phase, followSample, speeds);
+            });
+        }
+
+        addTask(MATH_ITERATIONS, () -> {
+            ChassisSpeeds robotSpeeds = ChassisSpeeds.fromFieldRelativeSpeeds(
+                speeds, Rotation2d.fromRadians(phase * Math.PI));
+            ChassisSpeeds discrete = ChassisSpeeds.discretize(robotSpeeds, 0.02);
+            SwerveModuleState[] states = kinematics.toSwerveModuleStates(discrete);
+            SwerveDriveKinematics.desaturateWheelSpeeds(states, 4.0);
+        });
+
+        // The alignment speeds, on controllers of the task's own
+        addTask(MATH_ITERATIONS, AlignToPoseCommand.createWarmupTask());
+
+        addTask(MATH_ITERATIONS, () -> {
+            poseHistory.add(time, phase, phase, phase, phase, phase);
+            // A vision capture from a few samples back, between two samples
+            poseHistory.sample(time - 10.5 * ODOMETRY_PERIOD, historySample);
+        });
+
+        addTask(MATH_ITERATIONS, () -> {
+            botposeArray[0] = phase;
+            botposeArray[5] = phase * 180.0;
+            botposeArray[7] = 2; // Tag count
+            LimelightHelpers.decodeBotPoseEstimate(botposeArray, (long) (phase * 1e6), poseEstimate);
+        });
+
+        // The predictor only talks to a do-nothing camera here
+        LimelightCropPredictor cropPredictor = new LimelightCropPredictor(
+            new VisionIO() {},
+            new Transform3d(new Translation3d(-0.3, 0.0, 0.5), new Rotation3d(0.0, 0.0, Math.PI)),
+            AprilTagFieldLayout.loadField(AprilTagFields.kDefaultField));
+        addTask(MATH_ITERATIONS / 4, () -> {
+            cropPredictor.update(new Pose2d(2.0 + phase * 12.0, 4.0, Rotation2d.fromRadians(phase * Math.PI)), speeds, -1);
+        });
+    }
+
+    /**
+     * Adds a task to run while disabled. Tasks must not touch hardware or shared state.
+     *
+     * @param iterations Number of times to run it
+     * @param body       Code to run
+     */
+    public void addTask(int iterations, Runnable body) {
+        tasks.add(new Task(iterations, body));
+        totalIterations += iterations;
+        complete = false;
+    }
+
+    @Override
+    public void periodic() {
+        profiler.begin(profilerSection);
+        if (!complete && DriverStation.isDisabled()) {
+            runSlice();
+        }
+
+        SmartDashboard.putBoolean("Warmup/Complete", complete);
+        Logger.recordOutput("Warmup/Complete", complete);
+        Logger.recordOutput("Warmup/Progress", getProgress());
+        Logger.recordOutput("Warmup/ElapsedMillis", elapsedMillis);
+        profiler.end(profilerSection);
+    }
+
+    /* Round-robins the unfinished tasks until this loop's time budget is spent */
+    private void runSlice() {
+        long start = System.nanoTime();
+        long deadline = start + (long) (MAX_MILLIS_PER_LOOP * 1e6);
+        boolean anyRemaining = true;
+
+        while (anyRemaining && System.nanoTime() < deadline) {
+            anyRemaining = false;
+            for (Task task : tasks) {
+                if (task.completed >= task.iterations) {
+                    continue;
+                }
+                // Small batches keep the deadline check cheap relative to the work
+                for (int i = 0; i < 50 && task.completed < task.iterations; i++) {
+                    phase = (phase + 0.013) % 1.0;
+                    time += ODOMETRY_PERIOD;
+                    task.body.run();
+                    task.completed++;
+                    completedIterations++;
+                }
+                anyRemaining |= task.completed < task.iterations;
+            }
+        }
+
+        elapsedMillis += (System.nanoTime() - start) / 1e6;
+        if (!anyRemaining) {
+            complete = true;
+            DataLogManager.log(String.format("WarmupSubsystem: Complete after %.0f ms across %d tasks",
+                elapsedMillis, tasks.size()));
+        }
+    }
+
+    /** True once every task has run its full iteration count. */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /** Fraction of warm-up iterations done, from 0 to 1. */
+    public double getProgress() {
+        return totalIterations == 0 ? 1.0 : (double) completedIterations / totalIterations;
+    }
+}
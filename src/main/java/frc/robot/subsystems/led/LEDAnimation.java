@@ -0,0 +1,22 @@
+package frc.robot.subsystems.led;
+
+/**
+ * A software LED animation, rendered by {@link LEDAnimationEngine}.
+ * <p>
+ * Animations are plain objects with settable parameters. {@link #render} is called on
+ * the engine's notifier thread each frame and must not allocate; parameters may be
+ * changed from the main thread at any time and take effect on the next frame. LEDs an
+ * animation leaves dark should not be written, so stacked animations and the layers
+ * beneath show through.
+ */
+public interface LEDAnimation {
+    /**
+     * Draws one frame.
+     *
+     * @param time  FPGA time of the frame, in seconds
+     * @param frame Frame to draw into
+     * @param start First LED of the area to draw
+     * @param count Number of LEDs in the area
+     */
+    void render(double time, LEDFrameBuffer frame, int start, int count);
+}
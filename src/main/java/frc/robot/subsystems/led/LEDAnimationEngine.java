@@ -0,0 +1,364 @@
+package frc.robot.subsystems.led;
+
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.ThreadPolicy;
+
+/**
+ * Renders software animations and streams them to the CANdle from its own notifier.
+ * <p>
+ * Each tick paints a base (an animation over black, or a solid color) over the whole
+ * strip, then any per-zone animations, then the overlay frame from the main loop, whose
+ * non-transparent LEDs win. The result is compared exactly with the frame last written and
+ * only the runs that changed are written. Neighbouring LEDs within {@code MERGE_TOLERANCE}
+ * of a run's first color join the run and are shown in that color, so gradients such as a
+ * scanner's tail cost a few writes instead of one per LED. At most {@code maxWritesPerTick} runs go out per tick;
+ * the rest are deferred, and the next tick starts scanning where this one had to stop so
+ * no part of the strip starves. All buffers are allocated up front.
+ * <p>
+ * Setters are called from the main thread and are picked up at the start of the next
+ * tick. While the engine is running it is the only thing writing LED colors to the CANdle.
+ */
+public class LEDAnimationEngine {
+    private static final int MAX_ZONE_ANIMATIONS = 8;
+    private static final double RATE_WINDOW = 1.0; // seconds
+    // Never a packed color or TRANSPARENT, so a run marked with it is always resent
+    private static final int UNSENT = -2;
+    // Per channel, out of 255; colors this close are sent as one run
+    static final int MERGE_TOLERANCE = 40;
+
+    private final LEDHardware hardware;
+    private final double period;
+    private final int maxWritesPerTick;
+    private final Notifier notifier;
+    private final Object lock = new Object();
+    private final Object tickLock = new Object();
+    private volatile boolean running = false;
+
+    // Requested by the main thread; guarded by lock
+    private LEDAnimation baseAnimation = null;
+    private int baseColor = 0;
+    private final LEDConfig.Zone[] zones = new LEDConfig.Zone[MAX_ZONE_ANIMATIONS];
+    private final LEDAnimation[] zoneAnimations = new LEDAnimation[MAX_ZONE_ANIMATIONS];
+    private int zoneCount = 0;
+    private final LEDFrameBuffer overlay;
+    private double brightness = 1.0;
+    private boolean resendRequested = true;
+
+    // Notifier thread only
+    private final LEDConfig.Zone[] tickZones = new LEDConfig.Zone[MAX_ZONE_ANIMATIONS];
+    private final LEDAnimation[] tickAnimations = new LEDAnimation[MAX_ZONE_ANIMATIONS];
+    private final LEDFrameBuffer tickOverlay;
+    private final LEDFrameBuffer rendered;
+    private final LEDFrameBuffer sent; // Rendered colors of the LEDs as of their last accepted write
+    private double sentBrightness = -1.0;
+    private int cursor = 0;
+    private boolean demoted = false;
+    private boolean reportedError = false;
+    private double windowStart = 0.0;
+    private int windowWrites = 0;
+    private int windowDeferred = 0;
+    private int windowFrames = 0;
+    private int windowCompleteFrames = 0;
+
+    // Written on the notifier thread, read by telemetry
+    private volatile double writesPerSecond = 0.0;
+    private volatile double deferredRunsPerSecond = 0.0;
+    private volatile double completeFrameFraction = 1.0;
+
+    /**
+     * @param hardware         CANdle to write to
+     * @param ledCount         Number of LEDs on the strip
+     * @param period           Seconds between frames
+     * @param maxWritesPerTick Most {@code setLEDs} calls sent in one frame
+     */
+    public LEDAnimationEngine(LEDHardware hardware, int ledCount, double period, int maxWritesPerTick) {
+        this.hardware = hardware;
+        this.period = period;
+        this.maxWritesPerTick = maxWritesPerTick;
+        overlay = new LEDFrameBuffer(ledCount);
+        overlay.fill(0, ledCount, LEDFrameBuffer.TRANSPARENT);
+        tickOverlay = new LEDFrameBuffer(ledCount);
+        rendered = new LEDFrameBuffer(ledCount);
+        sent = new LEDFrameBuffer(ledCount);
+        notifier = new Notifier(this::tick);
+        notifier.setName("LEDAnimation");
+    }
+
+    /** Starts rendering; the first frame is sent in full. */
+    public void start() {
+        if (!running) {
+            invalidate();
+            running = true;
+            notifier.startPeriodic(period);
+        }
+    }
+
+    /** Stops rendering and waits for a frame in progress, so the caller can write to the CANdle again. */
+    public void stop() {
+        if (running) {
+            running = false;
+            notifier.stop();
+            synchronized (tickLock) {
+                // A tick that started before stop() has finished writing
+            }
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Sets what is painted under everything else.
+     *
+     * @param animation Animation over the whole strip, or null for a solid color
+     * @param color     Color packed with {@link LEDFrameBuffer#pack}, used when there is no animation
+     */
+    public void setBase(LEDAnimation animation, int color) {
+        synchronized (lock) {
+            baseAnimation = animation;
+            baseColor = color;
+        }
+    }
+
+    /**
+     * Runs an animation over one zone, on top of the base. Zone animations paint in the
+     * order they were first set.
+     *
+     * @param zone      Zone to animate
+     * @param animation Animation to run, or null to remove the zone's animation
+     * @return False if there is no room for another zone animation
+     */
+    public boolean setZoneAnimation(LEDConfig.Zone zone, LEDAnimation animation) {
+        synchronized (lock) {
+            for (int i = 0; i < zoneCount; i++) {
+                if (zones[i] == zone) {
+                    if (animation != null) {
+                        zoneAnimations[i] = animation;
+                    } else {
+                        // Shift the rest down to keep their paint order
+                        System.arraycopy(zones, i + 1, zones, i, zoneCount - i - 1);
+                        System.arraycopy(zoneAnimations, i + 1, zoneAnimations, i, zoneCount - i - 1);
+                        zoneCount--;
+                        zones[zoneCount] = null;
+                        zoneAnimations[zoneCount] = null;
+                    }
+                    return true;
+                }
+            }
+            if (animation == null) {
+                return true;
+            }
+            if (zoneCount == MAX_ZONE_ANIMATIONS) {
+                return false;
+            }
+            zones[zoneCount] = zone;
+            zoneAnimations[zoneCount] = animation;
+            zoneCount++;
+            return true;
+        }
+    }
+
+    /**
+     * Sets the frame painted over the animations. LEDs set to
+     * {@link LEDFrameBuffer#TRANSPARENT} show the animations beneath.
+     */
+    public void setOverlay(LEDFrameBuffer frame) {
+        synchronized (lock) {
+            overlay.copyFrom(frame);
+        }
+    }
+
+    /** Brightness from 0 to 1, applied as runs are written. */
+    public void setBrightness(double brightness) {
+        synchronized (lock) {
+            this.brightness = brightness;
+        }
+    }
+
+    /** Forgets what the CANdle shows, so the next frame is sent in full. Call after a CANdle reset. */
+    public void invalidate() {
+        synchronized (lock) {
+            resendRequested = true;
+        }
+    }
+
+    /* Runs on the notifier */
+    private void tick() {
+        synchronized (tickLock) {
+            if (!running) {
+                return;
+            }
+            if (!demoted) {
+                ThreadPolicy.demoteCurrentThread();
+                demoted = true;
+            }
+            try {
+                if (hardware.isConfigured()) {
+                    render(Timer.getFPGATimestamp());
+                }
+            } catch (Exception e) {
+                if (!reportedError) {
+                    reportedError = true;
+                    DataLogManager.log("LEDAnimationEngine: Error rendering frame: " + e.getMessage());
+                }
+            }
+            updateRates();
+        }
+    }
+
+    /* Renders and streams one frame; package-private so tests can tick without the notifier */
+    void render(double now) {
+        int size = rendered.size();
+        LEDAnimation base;
+        int solid;
+        int animatedZones;
+        double frameBrightness;
+        boolean resend;
+        synchronized (lock) {
+            base = baseAnimation;
+            solid = baseColor;
+            animatedZones = zoneCount;
+            System.arraycopy(zones, 0, tickZones, 0, MAX_ZONE_ANIMATIONS);
+            System.arraycopy(zoneAnimations, 0, tickAnimations, 0, MAX_ZONE_ANIMATIONS);
+            tickOverlay.copyFrom(overlay);
+            frameBrightness = brightness;
+            resend = resendRequested;
+            resendRequested = false;
+        }
+
+        if (resend || frameBrightness != sentBrightness) {
+            sent.fill(0, size, UNSENT);
+            sentBrightness = frameBrightness;
+        }
+
+        if (base != null) {
+            // LEDs the animation leaves dark are off
+            rendered.fill(0, size, 0);
+            base.render(now, rendered, 0, size);
+        } else {
+            rendered.fill(0, size, solid);
+        }
+        for (int i = 0; i < animatedZones; i++) {
+            LEDConfig.Zone zone = tickZones[i];
+            int count = Math.min(zone.length, size - zone.startIndex);
+            if (count > 0) {
+                tickAnimations[i].render(now, rendered, zone.startIndex, count);
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            int color = tickOverlay.get(i);
+            if (color != LEDFrameBuffer.TRANSPARENT) {
+                rendered.set(i, color);
+            }
+        }
+
+        stream(size, frameBrightness);
+    }
+
+    private void stream(int size, double frameBrightness) {
+        int sentRuns = 0;
+        int writes = 0;
+        int nextCursor = -1;
+        int index = cursor;
+        for (int scanned = 0; scanned < size; ) {
+            int length = mergedRunLength(index, size);
+            if (differs(index, length)) {
+                if (sentRuns < maxWritesPerTick) {
+                    int color = rendered.get(index);
+                    boolean accepted = hardware.setLEDs(
+                        (int) Math.round(LEDFrameBuffer.red(color) * frameBrightness),
+                        (int) Math.round(LEDFrameBuffer.green(color) * frameBrightness),
+                        (int) Math.round(LEDFrameBuffer.blue(color) * frameBrightness),
+                        index, length);
+                    if (accepted) {
+                        // Remember what was rendered, not the merged color, so a static
+                        // gradient is not resent every tick
+                        for (int i = index; i < index + length; i++) {
+                            sent.set(i, rendered.get(i));
+                        }
+                        writes++;
+                    }
+                    sentRuns++;
+                } else {
+                    // Over the cap; picked up first next tick
+                    if (nextCursor < 0) {
+                        nextCursor = index;
+                    }
+                    windowDeferred++;
+                }
+            }
+            index += length;
+            scanned += length;
+            if (index >= size) {
+                index = 0;
+            }
+        }
+        cursor = nextCursor >= 0 ? nextCursor : 0;
+        windowWrites += writes;
+        windowFrames++;
+        if (nextCursor < 0 && writes == sentRuns) {
+            windowCompleteFrames++;
+        }
+    }
+
+    /* Length of the run from start whose colors are all within MERGE_TOLERANCE of its first */
+    private int mergedRunLength(int start, int size) {
+        int color = rendered.get(start);
+        int end = start + 1;
+        while (end < size && similar(rendered.get(end), color)) {
+            end++;
+        }
+        return end - start;
+    }
+
+    private boolean differs(int start, int length) {
+        for (int i = start; i < start + length; i++) {
+            if (rendered.get(i) != sent.get(i)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean similar(int a, int b) {
+        return Math.abs(LEDFrameBuffer.red(a) - LEDFrameBuffer.red(b)) <= MERGE_TOLERANCE
+            && Math.abs(LEDFrameBuffer.green(a) - LEDFrameBuffer.green(b)) <= MERGE_TOLERANCE
+            && Math.abs(LEDFrameBuffer.blue(a) - LEDFrameBuffer.blue(b)) <= MERGE_TOLERANCE;
+    }
+
+    private void updateRates() {
+        double now = Timer.getFPGATimestamp();
+        double elapsed = now - windowStart;
+        if (elapsed >= RATE_WINDOW) {
+            writesPerSecond = windowWrites / elapsed;
+            deferredRunsPerSecond = windowDeferred / elapsed;
+            completeFrameFraction = windowFrames == 0 ? 1.0 : (double) windowCompleteFrames / windowFrames;
+            windowStart = now;
+            windowWrites = 0;
+            windowDeferred = 0;
+            windowFrames = 0;
+            windowCompleteFrames = 0;
+        }
+    }
+
+    /** CAN writes the CANdle accepted per second, over the last second. */
+    public double getWritesPerSecond() {
+        return writesPerSecond;
+    }
+
+    /** Changed runs per second that had to wait for a later tick because of the write cap. */
+    public double getDeferredRunsPerSecond() {
+        return deferredRunsPerSecond;
+    }
+
+    /**
+     * Fraction of frames over the last second that reached the CANdle in full. Below 1 the
+     * animation has more changing runs than the write cap allows and is shown lagging.
+     */
+    public double getCompleteFrameFraction() {
+        return completeFrameFraction;
+    }
+}
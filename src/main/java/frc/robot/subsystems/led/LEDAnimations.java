@@ -0,0 +1,230 @@
+package frc.robot.subsystems.led;
+
+/**
+ * Software versions of the CANdle's built-in animations, plus ways to combine them.
+ * Speeds are in the same rough 0.1 to 2.0 range the CANdle animations use. Each animation
+ * only writes the LEDs it lights, so whatever is beneath shows through the rest.
+ */
+public final class LEDAnimations {
+    private LEDAnimations() {}
+
+    /** Packs a hue (0 to 1, wrapping) at full saturation and value. */
+    static int hue(double hue) {
+        double h = (hue - Math.floor(hue)) * 6.0;
+        int sector = (int) h;
+        int rising = (int) Math.round((h - sector) * 255);
+        int falling = 255 - rising;
+        return switch (sector) {
+            case 0 -> LEDFrameBuffer.pack(255, rising, 0);
+            case 1 -> LEDFrameBuffer.pack(falling, 255, 0);
+            case 2 -> LEDFrameBuffer.pack(0, 255, rising);
+            case 3 -> LEDFrameBuffer.pack(0, falling, 255);
+            case 4 -> LEDFrameBuffer.pack(rising, 0, 255);
+            default -> LEDFrameBuffer.pack(255, 0, falling);
+        };
+    }
+
+    /** Scales a packed color by a factor from 0 to 1. */
+    static int scale(int color, double factor) {
+        return LEDFrameBuffer.pack(
+            (int) Math.round(LEDFrameBuffer.red(color) * factor),
+            (int) Math.round(LEDFrameBuffer.green(color) * factor),
+            (int) Math.round(LEDFrameBuffer.blue(color) * factor));
+    }
+
+    /**
+     * A rainbow scrolling along the area. With {@code bands} set, the area is split into
+     * that many blocks of one hue each, so a frame is a few runs instead of one per LED.
+     */
+    public static final class Rainbow implements LEDAnimation {
+        private volatile double speed;
+        private volatile int bands;
+
+        public Rainbow(double speed) {
+            this(speed, 0);
+        }
+
+        /**
+         * @param speed Scroll speed
+         * @param bands Number of solid blocks of hue, or 0 for a hue per LED
+         */
+        public Rainbow(double speed, int bands) {
+            this.speed = speed;
+            this.bands = bands;
+        }
+
+        public Rainbow setSpeed(double speed) {
+            this.speed = speed;
+            return this;
+        }
+
+        public Rainbow setBands(int bands) {
+            this.bands = bands;
+            return this;
+        }
+
+        @Override
+        public void render(double time, LEDFrameBuffer frame, int start, int count) {
+            double offset = time * speed * 0.5;
+            int steps = bands > 0 ? Math.min(bands, count) : count;
+            for (int i = 0; i < count; i++) {
+                int band = i * steps / count;
+                frame.set(start + i, hue(offset + (double) band / steps));
+            }
+        }
+    }
+
+    /** The whole area flashing on and off; off shows what is beneath. */
+    public static final class Strobe implements LEDAnimation {
+        private volatile int color;
+        private volatile double speed;
+
+        public Strobe(int color, double speed) {
+            this.color = color;
+            this.speed = speed;
+        }
+
+        public Strobe setColor(int color) {
+            this.color = color;
+            return this;
+        }
+
+        public Strobe setSpeed(double speed) {
+            this.speed = speed;
+            return this;
+        }
+
+        @Override
+        public void render(double time, LEDFrameBuffer frame, int start, int count) {
+            double phase = time * speed * 10.0;
+            if (phase - Math.floor(phase) < 0.5) {
+                frame.fill(start, count, color);
+            }
+        }
+    }
+
+    /** A short bar bouncing from end to end with a fading tail, like a Larson scanner. */
+    public static final class Scanner implements LEDAnimation {
+        private volatile int color;
+        private volatile double speed;
+        private volatile int size;
+
+        public Scanner(int color, double speed, int size) {
+            this.color = color;
+            this.speed = speed;
+            this.size = size;
+        }
+
+        public Scanner setColor(int color) {
+            this.color = color;
+            return this;
+        }
+
+        public Scanner setSpeed(double speed) {
+            this.speed = speed;
+            return this;
+        }
+
+        @Override
+        public void render(double time, LEDFrameBuffer frame, int start, int count) {
+            int eyeColor = color;
+            int eyeSize = Math.max(1, size);
+            // Triangle wave across the area, so the bar bounces at each end
+            double travel = Math.max(1, count - 1);
+            double phase = time * speed * count / travel;
+            double position = Math.abs((phase % 2.0) - 1.0) * travel;
+            for (int i = 0; i < count; i++) {
+                double distance = Math.abs(i - position);
+                double level = distance < eyeSize / 2.0 ? 1.0 : Math.max(0.0, 1.0 - (distance - eyeSize / 2.0) / eyeSize);
+                if (level > 0.0) {
+                    frame.set(start + i, scale(eyeColor, level));
+                }
+            }
+        }
+    }
+
+    /** The area filling with a color from one end, then emptying, over and over. */
+    public static final class Flow implements LEDAnimation {
+        private volatile int color;
+        private volatile double speed;
+
+        public Flow(int color, double speed) {
+            this.color = color;
+            this.speed = speed;
+        }
+
+        public Flow setColor(int color) {
+            this.color = color;
+            return this;
+        }
+
+        public Flow setSpeed(double speed) {
+            this.speed = speed;
+            return this;
+        }
+
+        @Override
+        public void render(double time, LEDFrameBuffer frame, int start, int count) {
+            double phase = time * speed * 0.5;
+            int lit = (int) ((phase - Math.floor(phase)) * 2 * count);
+            boolean filling = lit < count;
+            int edge = filling ? lit : lit - count;
+            int flowColor = color;
+            for (int i = 0; i < count; i++) {
+                if ((i < edge) == filling) {
+                    frame.set(start + i, flowColor);
+                }
+            }
+        }
+    }
+
+    /** Another animation with its brightness scaled, for dimming one part of a stack. */
+    public static final class Dimmed implements LEDAnimation {
+        private final LEDAnimation animation;
+        private volatile double level;
+        // What the wrapped animation drew, so only those LEDs are dimmed; render thread only
+        private LEDFrameBuffer drawn = null;
+
+        public Dimmed(LEDAnimation animation, double level) {
+            this.animation = animation;
+            this.level = level;
+        }
+
+        public Dimmed setLevel(double level) {
+            this.level = level;
+            return this;
+        }
+
+        @Override
+        public void render(double time, LEDFrameBuffer frame, int start, int count) {
+            if (drawn == null || drawn.size() != frame.size()) {
+                drawn = new LEDFrameBuffer(frame.size()); // Once, on the first frame
+            }
+            drawn.fill(start, count, LEDFrameBuffer.TRANSPARENT);
+            animation.render(time, drawn, start, count);
+            double factor = level;
+            for (int i = start; i < start + count; i++) {
+                int color = drawn.get(i);
+                if (color != LEDFrameBuffer.TRANSPARENT) {
+                    frame.set(i, scale(color, factor));
+                }
+            }
+        }
+    }
+
+    /** Several animations drawn in order over the same area; later ones win where they light LEDs. */
+    public static final class Stack implements LEDAnimation {
+        private final LEDAnimation[] animations;
+
+        public Stack(LEDAnimation... animations) {
+            this.animations = animations.clone();
+        }
+
+        @Override
+        public void render(double time, LEDFrameBuffer frame, int start, int count) {
+            for (LEDAnimation animation : animations) {
+                animation.render(time, frame, start, count);
+            }
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package frc.robot.subsystems.led;
+
+/**
+ * Combines LED requests from several subsystems into one frame.
+ * <p>
+ * Each request is a layer: a solid color over one {@link LEDConfig.Zone}, with a priority
+ * and an optional expiry time. Layers are keyed by owner, so resubmitting replaces the
+ * owner's previous layer instead of stacking, and an owner that stops submitting drops
+ * out when its layer expires. Composing paints the base color, then every live layer
+ * from lowest to highest priority; layers of equal priority paint in submission order.
+ * Layers live in a fixed pool, so submitting and composing do not allocate.
+ */
+public class LEDCompositor {
+    private static final int MAX_LAYERS = 16;
+
+    private static final class Layer {
+        String owner;
+        LEDConfig.Zone zone;
+        int priority;
+        int color;
+        double expiresAt;
+        long sequence;
+        boolean active;
+    }
+
+    private final Layer[] layers = new Layer[MAX_LAYERS];
+    private final Layer[] drawOrder = new Layer[MAX_LAYERS];
+    private long nextSequence = 0;
+    private int liveLayerCount = 0;
+
+    public LEDCompositor() {
+        for (int i = 0; i < MAX_LAYERS; i++) {
+            layers[i] = new Layer();
+        }
+    }
+
+    /**
+     * Adds or replaces the caller's layer.
+     *
+     * @param owner    Identifies the layer; the same owner replaces its earlier layer
+     * @param zone     Part of the strip to cover
+     * @param priority Higher priorities are painted over lower ones
+     * @param color    Color packed with {@link LEDFrameBuffer#pack}
+     * @param expiresAt FPGA time the layer stops showing, or {@link Double#POSITIVE_INFINITY}
+     * @return False if every layer slot is taken by another owner
+     */
+    public boolean submit(String owner, LEDConfig.Zone zone, int priority, int color, double expiresAt) {
+        Layer slot = null;
+        for (Layer layer : layers) {
+            if (layer.active && layer.owner.equals(owner)) {
+                slot = layer;
+                break;
+            }
+            if (slot == null && !layer.active) {
+                slot = layer;
+            }
+        }
+        if (slot == null) {
+            return false;
+        }
+
+        if (!slot.active || slot.priority != priority || slot.zone != zone) {
+            // A changed layer goes on top of others at its priority
+            slot.sequence = nextSequence++;
+        }
+        slot.owner = owner;
+        slot.zone = zone;
+        slot.priority = priority;
+        slot.color = color;
+        slot.expiresAt = expiresAt;
+        slot.active = true;
+        return true;
+    }
+
+    /** Removes the owner's layer, if it has one. */
+    public void clear(String owner) {
+        for (Layer layer : layers) {
+            if (layer.active && layer.owner.equals(owner)) {
+                layer.active = false;
+            }
+        }
+    }
+
+    /**
+     * Composes the live layers over a base color and drops expired ones.
+     *
+     * @param now       Current FPGA time
+     * @param baseColor Color under every layer
+     * @param frame     Frame to overwrite
+     * @return Number of layers painted
+     */
+    public int compose(double now, int baseColor, LEDFrameBuffer frame) {
+        int count = 0;
+        for (Layer layer : layers) {
+            if (layer.active && now >= layer.expiresAt) {
+                layer.active = false;
+            }
+            if (layer.active) {
+                drawOrder[count++] = layer;
+            }
+        }
+
+        // Insertion sort; there are only a handful of layers
+        for (int i = 1; i < count; i++) {
+            Layer layer = drawOrder[i];
+            int j = i - 1;
+            while (j >= 0 && paintsAfter(drawOrder[j], layer)) {
+                drawOrder[j + 1] = drawOrder[j];
+                j--;
+            }
+            drawOrder[j + 1] = layer;
+        }
+
+        frame.fill(0, frame.size(), baseColor);
+        for (int i = 0; i < count; i++) {
+            Layer layer = drawOrder[i];
+            frame.fill(layer.zone.startIndex, layer.zone.length, layer.color);
+            drawOrder[i] = null;
+        }
+        liveLayerCount = count;
+        return count;
+    }
+
+    private static boolean paintsAfter(Layer a, Layer b) {
+        return a.priority > b.priority || (a.priority == b.priority && a.sequence > b.sequence);
+    }
+
+    /** Number of layers painted by the last {@link #compose}. */
+    public int getLiveLayerCount() {
+        return liveLayerCount;
+    }
+}
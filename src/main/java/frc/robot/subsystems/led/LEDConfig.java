@@ -11,6 +11,15 @@ public class LEDConfig {
         public static final int CANDLE_ID = 30; // CAN ID of the LED controller
         public static final int LED_COUNT = 30;
         public static final double DEFAULT_BRIGHTNESS = 0.9;
+        public static final double STATUS_PERIOD = 1.0; // seconds between diagnostic reads
+        public static final double ANIMATION_PERIOD = 0.05; // seconds between software animation frames
+        public static final int MAX_WRITES_PER_FRAME = 8; // setLEDs calls per software animation frame
+        public static final int RAINBOW_BANDS = 6; // hues in the software rainbow, so a frame fits under the cap
+
+        // Zone names; see defaultConfig() for where each one sits on the strip
+        public static final String ZONE_ALL = "All";
+        public static final String ZONE_VISION = "Vision";
+        public static final String ZONE_STATUS = "Status";
     }
 
     // Configuration properties
@@ -29,6 +38,10 @@ public class LEDConfig {
         config.statusLedOffWhenActive = true;
         config.vBatOutputMode = VBatOutputMode.Modulated; // TODO Determine actual mode
         config.disableWhenLOS = false;
+        // Assumes one continuous strip: vision on its first half, robot status on the second
+        config.zones.add(new Zone(0, Constants.LED_COUNT, Constants.ZONE_ALL));
+        config.zones.add(new Zone(0, Constants.LED_COUNT / 2, Constants.ZONE_VISION));
+        config.zones.add(new Zone(Constants.LED_COUNT / 2, Constants.LED_COUNT - Constants.LED_COUNT / 2, Constants.ZONE_STATUS));
         return config;
     }
 
@@ -46,5 +59,15 @@ public class LEDConfig {
     }
 
     public List<Zone> zones = new ArrayList<>();
+
+    /** Finds a zone by name, or returns null. */
+    public Zone getZone(String name) {
+        for (Zone zone : zones) {
+            if (zone.name.equals(name)) {
+                return zone;
+            }
+        }
+        return null;
+    }
 }
 
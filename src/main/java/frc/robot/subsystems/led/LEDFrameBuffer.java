@@ -0,0 +1,72 @@
+package frc.robot.subsystems.led;
+
+/**
+ * One color per LED, packed as {@code 0xRRGGBB} ints in a preallocated array.
+ */
+public class LEDFrameBuffer {
+    /** Marks an LED that shows whatever is beneath it; never produced by {@link #pack}. */
+    public static final int TRANSPARENT = -1;
+
+    private final int[] colors;
+
+    public LEDFrameBuffer(int ledCount) {
+        colors = new int[ledCount];
+    }
+
+    public static int pack(int r, int g, int b) {
+        return (clampByte(r) << 16) | (clampByte(g) << 8) | clampByte(b);
+    }
+
+    public static int red(int color) {
+        return (color >> 16) & 0xFF;
+    }
+
+    public static int green(int color) {
+        return (color >> 8) & 0xFF;
+    }
+
+    public static int blue(int color) {
+        return color & 0xFF;
+    }
+
+    private static int clampByte(int value) {
+        return Math.max(0, Math.min(255, value));
+    }
+
+    public int size() {
+        return colors.length;
+    }
+
+    public int get(int index) {
+        return colors[index];
+    }
+
+    public void set(int index, int color) {
+        colors[index] = color;
+    }
+
+    /** Sets {@code count} LEDs from {@code start}, clipped to the strip. */
+    public void fill(int start, int count, int color) {
+        int from = Math.max(0, start);
+        int to = Math.min(colors.length, start + count);
+        for (int i = from; i < to; i++) {
+            colors[i] = color;
+        }
+    }
+
+    public void copyFrom(LEDFrameBuffer other) {
+        System.arraycopy(other.colors, 0, colors, 0, Math.min(colors.length, other.colors.length));
+    }
+
+    /**
+     * Length of the run of identical colors starting at {@code start}.
+     */
+    public int runLength(int start) {
+        int color = colors[start];
+        int end = start + 1;
+        while (end < colors.length && colors[end] == color) {
+            end++;
+        }
+        return end - start;
+    }
+}
@@ -3,17 +3,33 @@ package frc.robot.subsystems.led;
 import com.ctre.phoenix.ErrorCode;
 import com.ctre.phoenix.led.*;
 import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj.Notifier;
 import edu.wpi.first.wpilibj.Timer;
+import frc.robot.ThreadPolicy;
 
 public class LEDHardware {
     // Hardware state tracking
     private final CANdle candle;
-    private Animation currentAnimation;
-    private LEDConfig config;
-    private boolean isConfigured = false;
-    private int configRetryCount = 0;
-    private static final int MAX_CONFIG_RETRIES = 3;
+    private volatile Animation currentAnimation; // Also cleared by the animation engine thread
+    private LEDConfig config; // Guarded by this
+
+    // Configuration runs on its own thread; these are written there and read anywhere
+    private static final int MAX_CONFIG_RETRIES = 3; // Attempts before reporting a failure
+    private static final double INITIAL_CONFIG_BACKOFF = 0.1; // seconds
+    private static final double MAX_CONFIG_BACKOFF = 5.0; // seconds
+    private Thread configThread = null; // Guarded by this; null once the thread is done
+    private long configGeneration = 0; // Guarded by this
+    private volatile boolean isConfigured = false;
+    private volatile int configRetryCount = 0;
     private double lastUpdateTime = 0;
+
+    // Diagnostics are sampled on a background notifier into sampledStatus, then copied
+    // into publishedStatus when the main loop asks for them
+    private final Notifier statusSampler;
+    private final Object statusLock = new Object();
+    private final Status sampledStatus = new Status(); // Guarded by statusLock
+    private boolean resetLatched = false; // Guarded by statusLock
+    private final Status publishedStatus = new Status(); // Main thread only
     
     // Diagnostic data structure (simplified from previous LEDIOInputs)
     public static class Status {
@@ -24,105 +40,246 @@ public class LEDHardware {
         public double lastUpdateTime = 0.0;
         public boolean isConfigured = false;
         public int configAttempts = 0;
+        /** Number of diagnostic samples taken; changes when the values above are refreshed */
+        public long sampleCount = 0;
     }
     
     public LEDHardware() {
+        this(LEDConfig.Constants.STATUS_PERIOD);
+    }
+
+    /**
+     * @param statusPeriodSeconds How often to read the CANdle's diagnostics
+     */
+    public LEDHardware(double statusPeriodSeconds) {
         // Using the constant directly since we know we're using CANdle
         candle = new CANdle(LEDConfig.Constants.CANDLE_ID, "rio");
         config = LEDConfig.defaultConfig();
+
+        sampleStatus();
+        statusSampler = new Notifier(this::sampleStatus);
+        statusSampler.setName("LEDStatus");
+        statusSampler.startPeriodic(statusPeriodSeconds);
         DataLogManager.log("LEDHardware: Initialized with CANdle ID " + LEDConfig.Constants.CANDLE_ID);
     }
 
-    public void configure(LEDConfig config) {
+    /* For tests: no CANdle and no diagnostics; subclasses override the calls under test */
+    LEDHardware(LEDConfig config) {
+        candle = null;
+        statusSampler = null;
         this.config = config;
+    }
+
+    /**
+     * Starts configuring the CANdle on a background thread and returns immediately.
+     * Failed attempts are retried with a growing delay until one succeeds; watch
+     * {@link #isConfigured()} or {@link Status#configAttempts} for progress.
+     */
+    public synchronized void configure(LEDConfig config) {
+        this.config = config;
+        isConfigured = false;
         configRetryCount = 0;
-        attemptConfiguration();
+        configGeneration++;
+        if (configThread == null) {
+            configThread = new Thread(this::runConfiguration, "LEDConfig");
+            configThread.setDaemon(true);
+            configThread.start();
+        }
     }
 
-    private void attemptConfiguration() {
+    /* Runs on the configuration thread until the current configuration has been applied */
+    private void runConfiguration() {
+        ThreadPolicy.demoteCurrentThread();
+        double backoff = INITIAL_CONFIG_BACKOFF;
+        while (true) {
+            LEDConfig target;
+            long generation;
+            synchronized (this) {
+                if (isConfigured) {
+                    configThread = null;
+                    return;
+                }
+                target = config;
+                generation = configGeneration;
+            }
+
+            boolean success = attemptConfiguration(target);
+            synchronized (this) {
+                if (generation != configGeneration) {
+                    // configure() was called again mid-attempt; apply the new settings
+                    backoff = INITIAL_CONFIG_BACKOFF;
+                    continue;
+                }
+                if (success) {
+                    isConfigured = true;
+                    configRetryCount = 0;
+                    configThread = null;
+                    DataLogManager.log("LEDHardware: Successfully configured");
+                    return;
+                }
+                configRetryCount++;
+                if (configRetryCount == MAX_CONFIG_RETRIES) {
+                    DataLogManager.log("LEDHardware: Configuration failed after " + MAX_CONFIG_RETRIES
+                        + " attempts, still retrying");
+                }
+            }
+
+            try {
+                Thread.sleep((long) (backoff * 1000));
+            } catch (InterruptedException e) {
+                synchronized (this) {
+                    configThread = null;
+                }
+                return;
+            }
+            backoff = Math.min(backoff * 2, MAX_CONFIG_BACKOFF);
+        }
+    }
+
+    private boolean attemptConfiguration(LEDConfig target) {
         try {
             CANdleConfiguration candleConfig = new CANdleConfiguration();
-            candleConfig.stripType = config.stripType;
-            candleConfig.brightnessScalar = config.brightness;
-            candleConfig.statusLedOffWhenActive = config.statusLedOffWhenActive;
-            candleConfig.vBatOutputMode = config.vBatOutputMode;
-            candleConfig.disableWhenLOS = config.disableWhenLOS;
+            candleConfig.stripType = target.stripType;
+            candleConfig.brightnessScalar = target.brightness;
+            candleConfig.statusLedOffWhenActive = target.statusLedOffWhenActive;
+            candleConfig.vBatOutputMode = target.vBatOutputMode;
+            candleConfig.disableWhenLOS = target.disableWhenLOS;
 
-            var error = candle.configAllSettings(candleConfig, 100);
+            ErrorCode error = candle.configAllSettings(candleConfig, 100);
             if (error.value != 0) {
-                handleConfigError(error);
-                return;
+                DataLogManager.log("LEDHardware: Configuration attempt " + (configRetryCount + 1)
+                    + " failed. Error: " + error.toString());
+                return false;
             }
-
-            isConfigured = true;
-            configRetryCount = 0;
-            DataLogManager.log("LEDHardware: Successfully configured");
+            return true;
         } catch (Exception e) {
             DataLogManager.log("LEDHardware: Configuration failed with exception: " + e.getMessage());
-            handleConfigError(null);
+            return false;
         }
     }
 
-    private void handleConfigError(ErrorCode error) {
-        configRetryCount++;
-        isConfigured = false;
-        
-        if (configRetryCount < MAX_CONFIG_RETRIES) {
-            DataLogManager.log("LEDHardware: Configuration attempt " + configRetryCount + 
-                             " failed. Error: " + (error != null ? error.toString() : "Unknown"));
-            Timer.delay(0.1);
-            attemptConfiguration();
-        } else {
-            DataLogManager.log("LEDHardware: Configuration failed after " + MAX_CONFIG_RETRIES + " attempts");
-        }
+    /** True once the CANdle has accepted the configuration. */
+    public boolean isConfigured() {
+        return isConfigured;
     }
 
-    public void setRGB(int r, int g, int b) {
+    /**
+     * Shows a solid color on the whole strip.
+     *
+     * @return True if the CANdle was written to
+     */
+    public boolean setRGB(int r, int g, int b) {
         if (!isConfigured) {
             DataLogManager.log("LEDHardware: Attempted to set RGB before successful configuration");
-            return;
+            return false;
         }
 
         try {
-            currentAnimation = null;
+            if (currentAnimation != null) {
+                // A running animation would overwrite the color
+                candle.clearAnimation(0);
+                currentAnimation = null;
+            }
             candle.setLEDs(r, g, b);
             lastUpdateTime = Timer.getFPGATimestamp();
+            return true;
         } catch (Exception e) {
             DataLogManager.log("LEDHardware: Failed to set RGB values: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Sets a contiguous block of LEDs to one color.
+     *
+     * @param start Index of the first LED
+     * @param count Number of LEDs
+     * @return True if the CANdle was written to
+     */
+    public boolean setLEDs(int r, int g, int b, int start, int count) {
+        if (!isConfigured) {
+            return false;
+        }
+
+        try {
+            if (currentAnimation != null) {
+                candle.clearAnimation(0);
+                currentAnimation = null;
+            }
+            candle.setLEDs(r, g, b, 0, start, count);
+            lastUpdateTime = Timer.getFPGATimestamp();
+            return true;
+        } catch (Exception e) {
+            DataLogManager.log("LEDHardware: Failed to set LEDs: " + e.getMessage());
+            return false;
         }
     }
 
-    public void setAnimation(Animation animation) {
+    /**
+     * Starts an animation in the CANdle's first animation slot.
+     *
+     * @return True if the CANdle was written to
+     */
+    public boolean setAnimation(Animation animation) {
         if (!isConfigured) {
             DataLogManager.log("LEDHardware: Attempted to set animation before successful configuration");
-            return;
+            return false;
         }
 
         try {
             currentAnimation = animation;
             candle.animate(animation);
             lastUpdateTime = Timer.getFPGATimestamp();
+            return true;
         } catch (Exception e) {
             DataLogManager.log("LEDHardware: Failed to set animation: " + e.getMessage());
+            return false;
         }
     }
 
-    public Status getStatus() {
-        Status status = new Status();
-        
+    /* Runs on the status notifier; diagnostics are not worth main-loop time or CAN bandwidth */
+    private void sampleStatus() {
+        double busVoltage = 0.0;
+        double current = 0.0;
+        double temperature = 0.0;
+        boolean isConnected;
         try {
-            status.busVoltage = candle.getBusVoltage();
-            status.current = candle.getCurrent();
-            status.temperature = candle.getTemperature();
-            status.isConnected = !candle.hasResetOccurred();
-            status.lastUpdateTime = lastUpdateTime;
-            status.isConfigured = isConfigured;
-            status.configAttempts = configRetryCount;
+            busVoltage = candle.getBusVoltage();
+            current = candle.getCurrent();
+            temperature = candle.getTemperature();
+            isConnected = !candle.hasResetOccurred();
         } catch (Exception e) {
             DataLogManager.log("LEDHardware: Failed to get status: " + e.getMessage());
-            status.isConnected = false;
+            isConnected = false;
+        }
+
+        synchronized (statusLock) {
+            sampledStatus.busVoltage = busVoltage;
+            sampledStatus.current = current;
+            sampledStatus.temperature = temperature;
+            sampledStatus.isConnected = isConnected;
+            sampledStatus.sampleCount++;
+            // A reset is reported once even if another sample lands before the main loop reads it
+            resetLatched |= !isConnected;
+        }
+    }
+
+    /**
+     * Gets the latest diagnostics without touching the CAN bus. The returned object is
+     * reused and overwritten by the next call.
+     */
+    public Status getStatus() {
+        synchronized (statusLock) {
+            publishedStatus.busVoltage = sampledStatus.busVoltage;
+            publishedStatus.current = sampledStatus.current;
+            publishedStatus.temperature = sampledStatus.temperature;
+            publishedStatus.isConnected = sampledStatus.isConnected && !resetLatched;
+            publishedStatus.sampleCount = sampledStatus.sampleCount;
+            resetLatched = false;
         }
-        
-        return status;
+        publishedStatus.lastUpdateTime = lastUpdateTime;
+        publishedStatus.isConfigured = isConfigured;
+        publishedStatus.configAttempts = configRetryCount;
+        return publishedStatus;
     }
-}
\ No newline at end of file
+}
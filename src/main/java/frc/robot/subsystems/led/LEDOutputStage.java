@@ -0,0 +1,226 @@
+package frc.robot.subsystems.led;
+
+import com.ctre.phoenix.led.Animation;
+import com.ctre.phoenix.led.ColorFlowAnimation;
+import com.ctre.phoenix.led.LarsonAnimation;
+import com.ctre.phoenix.led.RainbowAnimation;
+import com.ctre.phoenix.led.StrobeAnimation;
+
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * Sends the CANdle only the LED frames that differ from the last one it accepted.
+ * <p>
+ * Every loop {@link LEDSubsystem} asks for the frame it wants: either a state plus the
+ * animation settings, or a per-LED frame composed from layers. If that matches what was
+ * last committed to the hardware nothing goes on the bus; for per-LED frames only the
+ * runs that changed are sent. Each animation type has a single instance that is updated
+ * in place rather than rebuilt. The number of writes accepted and skipped per second is
+ * kept for telemetry; writes the hardware rejects are retried and counted as neither.
+ */
+public class LEDOutputStage {
+    private static final double RATE_WINDOW = 1.0; // seconds
+    private static final int LARSON_SIZE = 7;
+
+    private final LEDHardware hardware;
+
+    // One instance of each animation, updated in place
+    private final RainbowAnimation rainbow;
+    private final StrobeAnimation strobe;
+    private final LarsonAnimation larson;
+    private final ColorFlowAnimation colorFlow;
+
+    // Last frame the hardware accepted
+    private boolean committed = false;
+    private Animation committedAnimation = null;
+    private int committedR = 0;
+    private int committedG = 0;
+    private int committedB = 0;
+    private double committedSpeed = 0.0;
+    private double committedBrightness = 0.0;
+
+    // Last per-LED frame the hardware accepted, when showing composed layers
+    private final LEDFrameBuffer committedFrame;
+    private boolean frameCommitted = false;
+    private double committedFrameBrightness = 0.0;
+
+    // Write accounting
+    private double windowStart = 0.0;
+    private int windowSaved = 0;
+    private int windowWrites = 0;
+    private double writesPerSecond = 0.0;
+    private double savedWritesPerSecond = 0.0;
+    private long totalSavedWrites = 0;
+
+    public LEDOutputStage(LEDHardware hardware, int ledCount) {
+        this.hardware = hardware;
+        committedFrame = new LEDFrameBuffer(ledCount);
+        rainbow = new RainbowAnimation(1.0, 0.5, ledCount);
+        strobe = new StrobeAnimation(0, 0, 0, 0, 0.5, ledCount);
+        larson = new LarsonAnimation(0, 0, 0, 0, 0.5, ledCount, LarsonAnimation.BounceMode.Front, LARSON_SIZE);
+        colorFlow = new ColorFlowAnimation(0, 0, 0, 0, 0.5, ledCount, ColorFlowAnimation.Direction.Forward);
+    }
+
+    /**
+     * Shows a state, writing to the CANdle only if it differs from what is already shown.
+     *
+     * @param state             State to show
+     * @param animationsEnabled False to show the state's color without its animation
+     * @param speed             Animation speed
+     * @param brightness        Brightness from 0 to 1
+     * @return True if a write was sent and the hardware accepted it
+     */
+    public boolean commit(LEDState state, boolean animationsEnabled, double speed, double brightness) {
+        Animation animation = animationsEnabled ? animationFor(state) : null;
+        int r = (int) Math.round(state.r * brightness);
+        int g = (int) Math.round(state.g * brightness);
+        int b = (int) Math.round(state.b * brightness);
+
+        if (committed
+                && animation == committedAnimation
+                && r == committedR && g == committedG && b == committedB
+                && (animation == null || (speed == committedSpeed && brightness == committedBrightness))) {
+            windowSaved++;
+            totalSavedWrites++;
+            return false;
+        }
+
+        boolean accepted;
+        if (animation == null) {
+            accepted = hardware.setRGB(r, g, b);
+        } else {
+            configure(animation, r, g, b, speed, brightness);
+            accepted = hardware.setAnimation(animation);
+        }
+        if (accepted) {
+            windowWrites++;
+        }
+
+        frameCommitted = false;
+        committed = accepted;
+        committedAnimation = animation;
+        committedR = r;
+        committedG = g;
+        committedB = b;
+        committedSpeed = speed;
+        committedBrightness = brightness;
+        return accepted;
+    }
+
+    /**
+     * Shows a per-LED frame, writing only the runs of same-colored LEDs that changed.
+     * Each run is one {@code setLEDs} call, so a frame of a few zones costs a few writes.
+     *
+     * @param frame      Frame to show
+     * @param brightness Brightness from 0 to 1, applied as each run is written
+     * @return Number of writes the hardware accepted
+     */
+    public int commitFrame(LEDFrameBuffer frame, double brightness) {
+        boolean resend = !frameCommitted || brightness != committedFrameBrightness;
+        boolean accepted = true;
+        int runs = 0;
+        int sent = 0;
+        int writes = 0;
+
+        for (int start = 0; start < frame.size(); ) {
+            int length = frame.runLength(start);
+            runs++;
+            if (resend || differs(frame, start, length)) {
+                int color = frame.get(start);
+                if (hardware.setLEDs(
+                        (int) Math.round(LEDFrameBuffer.red(color) * brightness),
+                        (int) Math.round(LEDFrameBuffer.green(color) * brightness),
+                        (int) Math.round(LEDFrameBuffer.blue(color) * brightness),
+                        start, length)) {
+                    writes++;
+                } else {
+                    accepted = false;
+                }
+                sent++;
+            }
+            start += length;
+        }
+
+        windowWrites += writes;
+        windowSaved += runs - sent;
+        totalSavedWrites += runs - sent;
+
+        committedFrame.copyFrom(frame);
+        committedFrameBrightness = brightness;
+        frameCommitted = accepted;
+        committed = false;
+        return writes;
+    }
+
+    private boolean differs(LEDFrameBuffer frame, int start, int length) {
+        for (int i = start; i < start + length; i++) {
+            if (frame.get(i) != committedFrame.get(i)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Forgets what the hardware shows, so the next frame is always sent. Call after a CANdle reset. */
+    public void invalidate() {
+        committed = false;
+        frameCommitted = false;
+    }
+
+    private Animation animationFor(LEDState state) {
+        return switch (state) {
+            case AUTONOMOUS -> rainbow;
+            case ERROR -> strobe;
+            case INTAKING -> larson;
+            case SCORING -> colorFlow;
+            // All other states (including TARGET_VISIBLE) use solid colors
+            default -> null;
+        };
+    }
+
+    private void configure(Animation animation, int r, int g, int b, double speed, double brightness) {
+        animation.setSpeed(speed);
+        if (animation == rainbow) {
+            rainbow.setBrightness(brightness);
+        } else if (animation == strobe) {
+            strobe.setR(r);
+            strobe.setG(g);
+            strobe.setB(b);
+        } else if (animation == larson) {
+            larson.setR(r);
+            larson.setG(g);
+            larson.setB(b);
+        } else if (animation == colorFlow) {
+            colorFlow.setR(r);
+            colorFlow.setG(g);
+            colorFlow.setB(b);
+        }
+    }
+
+    /** Call once per loop to roll the per-second write counts. */
+    public void updateRates() {
+        double now = Timer.getFPGATimestamp();
+        double elapsed = now - windowStart;
+        if (elapsed >= RATE_WINDOW) {
+            writesPerSecond = windowWrites / elapsed;
+            savedWritesPerSecond = windowSaved / elapsed;
+            windowStart = now;
+            windowSaved = 0;
+            windowWrites = 0;
+        }
+    }
+
+    /** CAN writes the CANdle accepted per second, over the last second. */
+    public double getWritesPerSecond() {
+        return writesPerSecond;
+    }
+
+    /** CAN writes skipped per second because nothing changed, over the last second. */
+    public double getSavedWritesPerSecond() {
+        return savedWritesPerSecond;
+    }
+
+    public long getTotalSavedWrites() {
+        return totalSavedWrites;
+    }
+}
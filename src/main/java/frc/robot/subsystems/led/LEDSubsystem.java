@@ -1,136 +1,97 @@
 package frc.robot.subsystems.led;
 
-import com.ctre.phoenix.led.*;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj.DataLogManager;
+import frc.robot.telemetry.LoopProfiler;
 
 public class LEDSubsystem extends SubsystemBase {
     private final LEDHardware hardware;
+    private final LEDOutputStage output;
+    private final LoopProfiler profiler = LoopProfiler.getInstance();
+    private final int profilerSection = profiler.register("LEDSubsystem");
+    private final LEDConfig config = LEDConfig.defaultConfig();
+    private final LEDCompositor compositor = new LEDCompositor();
+    private final LEDFrameBuffer frame;
+    private final LEDAnimationEngine engine;
     private LEDState currentState = LEDState.OFF;
     private boolean animationEnabled = true;
-    private double lastStateChangeTime = 0;
-    private static final double MIN_STATE_CHANGE_INTERVAL = 0.1; // seconds
+    private boolean softwareAnimations = false;
+
+    // Software versions of the CANdle animations, updated in place
+    private final LEDAnimations.Rainbow rainbow = new LEDAnimations.Rainbow(0.7, LEDConfig.Constants.RAINBOW_BANDS);
+    private final LEDAnimations.Strobe strobe = new LEDAnimations.Strobe(0, 0.7);
+    private final LEDAnimations.Scanner scanner = new LEDAnimations.Scanner(0, 0.7, 7);
+    private final LEDAnimations.Flow flow = new LEDAnimations.Flow(0, 0.7);
 
 
     // Animation configuration
     private double animationSpeed = 0.7; // Default animation speed
     private double brightness = 1.0; // Default brightness
     private final int ledCount;
+    private long lastPublishedSample = -1;
+    private boolean reportedConfigFailure = false;
 
 public LEDSubsystem() {
     this.hardware = new LEDHardware();
     this.ledCount = LEDConfig.Constants.LED_COUNT;
+    this.output = new LEDOutputStage(hardware, ledCount);
+    this.frame = new LEDFrameBuffer(ledCount);
+    this.engine = new LEDAnimationEngine(
+        hardware, ledCount, LEDConfig.Constants.ANIMATION_PERIOD, LEDConfig.Constants.MAX_WRITES_PER_FRAME);
     
     DataLogManager.log("LEDSubsystem: Initializing...");
-    hardware.configure(LEDConfig.defaultConfig());
-    Timer.delay(0.1); // Add small delay for hardware to initialize
-    setState(LEDState.OFF); // Explicitly set initial state
+    // Configures in the background; states set before it finishes are shown once it does
+    hardware.configure(config);
     DataLogManager.log("LEDSubsystem: Initialization complete");
 }
 
-    /**
-     * Creates an appropriate animation based on the current state.
-     * Each state can have its own unique animation pattern.
-     */
-    private Animation createStateAnimation() {
-        // Convert brightness to the 0-255 range that CTRE animations expect
-        int brightnessByte = (int) (brightness * 255);
-
-        return switch (currentState) {
-            // States that use rainbow animations
-            case AUTONOMOUS -> new RainbowAnimation(
-                    brightnessByte,
-                    animationSpeed,
-                    ledCount);
-        
-            // States that use strobing animations
-            case ERROR -> new StrobeAnimation(
-                    brightnessByte,
-                    currentState.r,
-                    currentState.g,
-                    currentState.b,
-                    animationSpeed,
-                    ledCount);
-        
-            // States that use "scanning" animations
-            case INTAKING -> new LarsonAnimation(
-                    brightnessByte,
-                    currentState.r,
-                    currentState.g,
-                    currentState.b,
-                    animationSpeed,
-                    ledCount,
-                    LarsonAnimation.BounceMode.Front,
-                    7);
-        
-            // States that use color flow animations
-            case SCORING -> new ColorFlowAnimation(
-                    brightnessByte,
-                    currentState.r,
-                    currentState.g,
-                    currentState.b,
-                    animationSpeed,
-                    ledCount,
-                    ColorFlowAnimation.Direction.Forward);
-            /* 
-            case RAINBOW -> new RainbowAnimation(
-                brightnessByte,
-                animationSpeed,
-                ledCount);
-                
-            case SCANNER_RED -> new StrobeAnimation(
-                brightnessByte,
-                255, 255, 255,  // White
-                animationSpeed * 2, // Faster strobe
-                ledCount);
-                
-            case SCANNER_BLUE -> new LarsonAnimation(
-                brightnessByte,
-                0, 0, 255,  // Blue
-                animationSpeed,
-                ledCount,
-                LarsonAnimation.BounceMode.Front,
-                5);
-                
-            case COLOR_FLOW -> new ColorFlowAnimation(
-                brightnessByte,
-                255, 165, 0,  // Orange
-                animationSpeed,
-                ledCount,
-                ColorFlowAnimation.Direction.Forward);
-            */ 
-            
-        
-            // All other states (including TARGET_VISIBLE) use solid colors
-            default -> null;
-        };
-        
-    }
-
     @Override
     public void periodic() {
+        profiler.begin(profilerSection);
         var status = hardware.getStatus();
 
+        if (!status.isConnected) {
+            // The CANdle may have reset and lost what it was showing
+            output.invalidate();
+            engine.invalidate();
+        }
+
         if (status.isConfigured) {
+            // Also applies whatever state was requested while the CANdle was configuring
             updateLEDs();
-        } else if (status.configAttempts >= 3) {
-            currentState = LEDState.ERROR;
-            DataLogManager.log("LEDSubsystem: Hardware configuration failed, entering ERROR state");
+            reportedConfigFailure = false;
+        } else if (status.configAttempts >= 3 && !reportedConfigFailure) {
+            // Nothing can be shown until a retry succeeds; keep the requested state for then
+            reportedConfigFailure = true;
+            DataLogManager.log("LEDSubsystem: Hardware configuration failing, retrying in the background");
         }
 
+        output.updateRates();
         updateTelemetry(status);
+        profiler.end(profilerSection);
     }
 
     private void updateLEDs() {
+        if (!hardware.isConfigured()) {
+            return; // Buffered in currentState until the hardware is ready
+        }
         try {
-            Animation stateAnimation = createStateAnimation();
-
-            if (stateAnimation != null && animationEnabled) {
-                hardware.setAnimation(stateAnimation);
+            // Layers from other subsystems are painted over the current state's color.
+            // With no layers the whole strip shows the state, animated if it has one.
+            int baseColor = LEDFrameBuffer.pack(currentState.r, currentState.g, currentState.b);
+            if (softwareAnimations) {
+                // The engine draws the state underneath and streams frames from its own thread
+                compositor.compose(Timer.getFPGATimestamp(), LEDFrameBuffer.TRANSPARENT, frame);
+                engine.setBase(animationEnabled ? softwareAnimationFor(currentState, baseColor) : null, baseColor);
+                engine.setOverlay(frame);
+                engine.setBrightness(brightness);
+            } else if (compositor.compose(Timer.getFPGATimestamp(), baseColor, frame) == 0) {
+                // Only reaches the CAN bus when the frame differs from what is showing
+                output.commit(currentState, animationEnabled, animationSpeed, brightness);
             } else {
-                hardware.setRGB(currentState.r, currentState.g, currentState.b);
+                output.commitFrame(frame, brightness);
             }
         } catch (Exception e) {
             DataLogManager.log("LEDSubsystem: Error updating LEDs: " + e.getMessage());
@@ -138,18 +99,96 @@ public LEDSubsystem() {
         }
     }
 
+    private LEDAnimation softwareAnimationFor(LEDState state, int color) {
+        return switch (state) {
+            case AUTONOMOUS -> rainbow.setSpeed(animationSpeed);
+            case ERROR -> strobe.setColor(color).setSpeed(animationSpeed);
+            case INTAKING -> scanner.setColor(color).setSpeed(animationSpeed);
+            case SCORING -> flow.setColor(color).setSpeed(animationSpeed);
+            default -> null;
+        };
+    }
+
     // Public control methods
     public void setState(LEDState state) {
-        double currentTime = Timer.getFPGATimestamp();
-        if (state != currentState && (currentTime - lastStateChangeTime) > MIN_STATE_CHANGE_INTERVAL) {
+        if (state != currentState) {
             currentState = state;
-            lastStateChangeTime = currentTime;
-            hardware.setRGB(state.r, state.g, state.b);
+            updateLEDs();
             DataLogManager.log("LEDSubsystem: State changed to " + state.toString());
         }
     }
-    
-    
+
+    /**
+     * Shows a color over part of the strip, on top of the current state and any
+     * lower-priority layers. Submitting again with the same owner replaces the layer,
+     * so subsystems can submit every loop.
+     *
+     * @param owner           Name of the caller; one layer per owner
+     * @param zoneName        Zone from {@link LEDConfig.Constants}, such as {@code ZONE_VISION}
+     * @param priority        Higher priorities are shown over lower ones
+     * @param color           Color to show
+     * @param durationSeconds How long to show it, or 0 to show it until cleared
+     */
+    public void submitLayer(String owner, String zoneName, int priority, LEDState color, double durationSeconds) {
+        LEDConfig.Zone zone = config.getZone(zoneName);
+        if (zone == null) {
+            DataLogManager.log("LEDSubsystem: Unknown zone " + zoneName);
+            return;
+        }
+        double expiresAt = durationSeconds > 0.0
+            ? Timer.getFPGATimestamp() + durationSeconds
+            : Double.POSITIVE_INFINITY;
+        if (!compositor.submit(owner, zone, priority, LEDFrameBuffer.pack(color.r, color.g, color.b), expiresAt)) {
+            DataLogManager.log("LEDSubsystem: No free layer for " + owner);
+        }
+    }
+
+    /** Removes the owner's layer. */
+    public void clearLayer(String owner) {
+        compositor.clear(owner);
+    }
+
+    /**
+     * Runs an animation over part of the strip, above the current state and below any
+     * layers. Only shown while software animations are enabled.
+     *
+     * @param zoneName  Zone from {@link LEDConfig.Constants}
+     * @param animation Animation to run, or null to stop the zone's animation
+     */
+    public void setZoneAnimation(String zoneName, LEDAnimation animation) {
+        LEDConfig.Zone zone = config.getZone(zoneName);
+        if (zone == null) {
+            DataLogManager.log("LEDSubsystem: Unknown zone " + zoneName);
+            return;
+        }
+        if (!engine.setZoneAnimation(zone, animation)) {
+            DataLogManager.log("LEDSubsystem: No free zone animation slot for " + zoneName);
+        }
+    }
+
+    /**
+     * Switches between the CANdle's built-in animations and the software animation engine.
+     * The engine renders on its own notifier and can animate individual zones, but costs
+     * CAN writes every frame while something is moving, so it is off until an operator
+     * turns it on.
+     */
+    public void setSoftwareAnimationsEnabled(boolean enabled) {
+        if (softwareAnimations != enabled) {
+            softwareAnimations = enabled;
+            if (enabled) {
+                engine.start();
+            } else {
+                engine.stop();
+                output.invalidate();
+            }
+            updateLEDs();
+            DataLogManager.log("LEDSubsystem: Software animations " + (enabled ? "enabled" : "disabled"));
+        }
+    }
+
+    public boolean isSoftwareAnimationsEnabled() {
+        return softwareAnimations;
+    }
 
     public LEDState getState() {
         return currentState;
@@ -205,9 +244,22 @@ public LEDSubsystem() {
         SmartDashboard.putNumber("LED/AnimationSpeed", animationSpeed);
         SmartDashboard.putNumber("LED/Brightness", brightness);
         SmartDashboard.putBoolean("LED/IsConfigured", status.isConfigured);
-        SmartDashboard.putNumber("LED/BusVoltage", status.busVoltage);
-        SmartDashboard.putNumber("LED/Current", status.current);
-        SmartDashboard.putNumber("LED/Temperature", status.temperature);
-        SmartDashboard.putBoolean("LED/IsConnected", status.isConnected);
+        SmartDashboard.putNumber("LED/ConfigAttempts", status.configAttempts);
+        SmartDashboard.putNumber("LED/CANWritesPerSecond", output.getWritesPerSecond());
+        SmartDashboard.putNumber("LED/SavedWritesPerSecond", output.getSavedWritesPerSecond());
+        SmartDashboard.putNumber("LED/Layers", compositor.getLiveLayerCount());
+        SmartDashboard.putBoolean("LED/SoftwareAnimations", softwareAnimations);
+        SmartDashboard.putNumber("LED/Engine/WritesPerSecond", engine.getWritesPerSecond());
+        SmartDashboard.putNumber("LED/Engine/DeferredRunsPerSecond", engine.getDeferredRunsPerSecond());
+        SmartDashboard.putNumber("LED/Engine/CompleteFrameFraction", engine.getCompleteFrameFraction());
+
+        // Hardware diagnostics only change when the background sampler runs
+        if (status.sampleCount != lastPublishedSample) {
+            lastPublishedSample = status.sampleCount;
+            SmartDashboard.putNumber("LED/BusVoltage", status.busVoltage);
+            SmartDashboard.putNumber("LED/Current", status.current);
+            SmartDashboard.putNumber("LED/Temperature", status.temperature);
+            SmartDashboard.putBoolean("LED/IsConnected", status.isConnected);
+        }
     }
 }
\ No newline at end of file
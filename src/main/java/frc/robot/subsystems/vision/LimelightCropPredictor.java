@@ -0,0 +1,312 @@
+package frc.robot.subsystems.vision;
+
+import java.util.Arrays;
+import java.util.List;
+
+import edu.wpi.first.apriltag.AprilTag;
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.wpilibj.DataLogManager;
+
+/**
+ * Predicts where AprilTags will appear in one camera's image and narrows the Limelight's
+ * crop window, fiducial ID filter and downscaling to match.
+ * <p>
+ * The Limelight's frame rate is bounded by how many pixels it searches. During alignment we
+ * already know (from the fused pose and the field layout) roughly where the tags are, so
+ * the camera only needs to look there. Tag positions are cached as primitives and the
+ * projection is done by hand, so prediction does not allocate; the camera is only
+ * reconfigured when the prediction changes meaningfully.
+ * <p>
+ * If the pose is off, the prediction can crop the tag out of view. When a narrowed camera
+ * goes {@code MAX_MISSED_FRAMES} frames without a target, the full image and every tag ID
+ * are restored until the camera sees a target again.
+ */
+public class LimelightCropPredictor {
+    // Camera model (Limelight 3 defaults)
+    private static final double HORIZONTAL_FOV_DEGREES = 62.5;
+    private static final double VERTICAL_FOV_DEGREES = 48.9;
+    private static final double TAG_SIZE_METERS = 0.1651; // 6.5 in
+
+    // Prediction tuning
+    private static final double LOOKAHEAD_SECONDS = 0.1; // Covers pipeline latency plus one loop
+    private static final double MAX_TAG_DISTANCE = 6.0; // meters
+    private static final double BASE_MARGIN = 0.15; // Normalized image units
+    private static final double MARGIN_PER_RADIAN_PER_SECOND = 0.25; // Extra margin while turning
+    private static final double MIN_CROP_CHANGE = 0.05; // Normalized image units
+    private static final int MAX_MISSED_FRAMES = 20; // Frames without a target before giving up on a crop
+
+    // Downscaling thresholds: close tags are large enough to find in a smaller image
+    private static final double DOWNSCALE_3X_DISTANCE = 1.5; // meters
+    private static final double DOWNSCALE_2X_DISTANCE = 3.0; // meters
+
+    private static final float DOWNSCALE_PIPELINE = 0.0f;
+
+    private final VisionIO camera;
+
+    // Camera mounting, flattened for the projection below
+    private final double cameraX;
+    private final double cameraY;
+    private final double cameraZ;
+    private final double cameraYaw;
+    private final double cameraPitch;
+    private final double tanHalfHorizontalFov = Math.tan(Math.toRadians(HORIZONTAL_FOV_DEGREES / 2.0));
+    private final double tanHalfVerticalFov = Math.tan(Math.toRadians(VERTICAL_FOV_DEGREES / 2.0));
+
+    // Field layout as primitives
+    private final int[] tagIds;
+    private final double[] tagXs;
+    private final double[] tagYs;
+    private final double[] tagZs;
+
+    // Scratch for the current prediction
+    private final int[] visibleIds;
+    private int visibleCount = 0;
+
+    // Last configuration sent to the camera
+    private final double[] sentCrop = { -1.0, 1.0, -1.0, 1.0 };
+    private int[] sentIdFilter = new int[0];
+    private boolean filterActive = false;
+    private float sentDownscale = DOWNSCALE_PIPELINE;
+    private int configurationWrites = 0;
+
+    // Recovery from a crop that lost the target
+    private int missedFrames = 0;
+    private boolean recovering = false;
+    private int recoveries = 0;
+
+    public LimelightCropPredictor(VisionIO camera, Transform3d robotToCamera, AprilTagFieldLayout layout) {
+        this.camera = camera;
+        cameraX = robotToCamera.getX();
+        cameraY = robotToCamera.getY();
+        cameraZ = robotToCamera.getZ();
+        cameraYaw = robotToCamera.getRotation().getZ();
+        cameraPitch = robotToCamera.getRotation().getY();
+
+        List<AprilTag> tags = layout.getTags();
+        tagIds = new int[tags.size()];
+        tagXs = new double[tags.size()];
+        tagYs = new double[tags.size()];
+        tagZs = new double[tags.size()];
+        for (int i = 0; i < tags.size(); i++) {
+            AprilTag tag = tags.get(i);
+            tagIds[i] = tag.ID;
+            tagXs[i] = tag.pose.getX();
+            tagYs[i] = tag.pose.getY();
+            tagZs[i] = tag.pose.getZ();
+        }
+        visibleIds = new int[tags.size()];
+    }
+
+    /**
+     * Reports the frames the camera delivered since the last call. Call before {@link #update}.
+     *
+     * @param frames    Number of frames received
+     * @param sawTarget True if any of them had a target
+     */
+    public void recordFrames(int frames, boolean sawTarget) {
+        if (sawTarget) {
+            missedFrames = 0;
+            recovering = false;
+        } else if (isNarrowed()) {
+            missedFrames += frames;
+        }
+    }
+
+    /**
+     * Predicts tag positions and reconfigures the camera if needed.
+     *
+     * @param pose          Fused robot pose
+     * @param robotSpeeds   Robot-relative speeds, used to look ahead by the camera latency
+     * @param trackedTagId  Tag currently being tracked, or -1 to frame every visible tag
+     */
+    public void update(Pose2d pose, ChassisSpeeds robotSpeeds, int trackedTagId) {
+        if (!recovering && missedFrames >= MAX_MISSED_FRAMES) {
+            recovering = true;
+            recoveries++;
+            DataLogManager.log("LimelightCropPredictor: No target in " + missedFrames
+                + " frames, restoring the full image until one is found");
+        }
+        if (recovering) {
+            reset();
+            return;
+        }
+
+        // Where the robot will be when the next frame is captured
+        double heading = pose.getRotation().getRadians();
+        double headingCos = Math.cos(heading);
+        double headingSin = Math.sin(heading);
+        double vx = robotSpeeds.vxMetersPerSecond;
+        double vy = robotSpeeds.vyMetersPerSecond;
+        double robotX = pose.getX() + (vx * headingCos - vy * headingSin) * LOOKAHEAD_SECONDS;
+        double robotY = pose.getY() + (vx * headingSin + vy * headingCos) * LOOKAHEAD_SECONDS;
+        double robotYaw = heading + robotSpeeds.omegaRadiansPerSecond * LOOKAHEAD_SECONDS;
+
+        double cos = Math.cos(robotYaw);
+        double sin = Math.sin(robotYaw);
+        double camFieldX = robotX + cameraX * cos - cameraY * sin;
+        double camFieldY = robotY + cameraX * sin + cameraY * cos;
+        double camFieldYaw = robotYaw + cameraYaw;
+        double cosYaw = Math.cos(-camFieldYaw);
+        double sinYaw = Math.sin(-camFieldYaw);
+        double cosPitch = Math.cos(cameraPitch);
+        double sinPitch = Math.sin(cameraPitch);
+
+        double minX = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        double nearestDistance = Double.POSITIVE_INFINITY;
+        boolean trackedVisible = false;
+        visibleCount = 0;
+
+        for (int i = 0; i < tagIds.length; i++) {
+            double dx = tagXs[i] - camFieldX;
+            double dy = tagYs[i] - camFieldY;
+            double dz = tagZs[i] - cameraZ;
+
+            // Into the camera frame: undo yaw, then pitch (positive pitch points the camera down)
+            double a = dx * cosYaw - dy * sinYaw;
+            double left = dx * sinYaw + dy * cosYaw;
+            double forward = a * cosPitch - dz * sinPitch;
+            double up = a * sinPitch + dz * cosPitch;
+            if (forward <= 0.0) {
+                continue;
+            }
+
+            double distance = Math.sqrt(forward * forward + left * left + up * up);
+            if (distance > MAX_TAG_DISTANCE) {
+                continue;
+            }
+
+            // Normalized image coordinates, -1 to 1, positive right and up
+            double imageX = (-left / forward) / tanHalfHorizontalFov;
+            double imageY = (up / forward) / tanHalfVerticalFov;
+            double halfWidth = (TAG_SIZE_METERS / 2.0 / forward) / tanHalfHorizontalFov;
+            double halfHeight = (TAG_SIZE_METERS / 2.0 / forward) / tanHalfVerticalFov;
+            if (imageX + halfWidth < -1.0 || imageX - halfWidth > 1.0
+                    || imageY + halfHeight < -1.0 || imageY - halfHeight > 1.0) {
+                continue;
+            }
+
+            visibleIds[visibleCount++] = tagIds[i];
+            boolean isTracked = tagIds[i] == trackedTagId;
+            if (isTracked && !trackedVisible) {
+                // Frame only the tracked tag once it is found
+                trackedVisible = true;
+                minX = Double.POSITIVE_INFINITY;
+                maxX = Double.NEGATIVE_INFINITY;
+                minY = Double.POSITIVE_INFINITY;
+                maxY = Double.NEGATIVE_INFINITY;
+                nearestDistance = Double.POSITIVE_INFINITY;
+            }
+            if (trackedVisible && !isTracked) {
+                continue;
+            }
+
+            minX = Math.min(minX, imageX - halfWidth);
+            maxX = Math.max(maxX, imageX + halfWidth);
+            minY = Math.min(minY, imageY - halfHeight);
+            maxY = Math.max(maxY, imageY + halfHeight);
+            nearestDistance = Math.min(nearestDistance, distance);
+        }
+
+        if (visibleCount == 0) {
+            reset();
+            return;
+        }
+
+        double margin = BASE_MARGIN + Math.abs(robotSpeeds.omegaRadiansPerSecond) * MARGIN_PER_RADIAN_PER_SECOND;
+        sendCrop(
+            Math.max(-1.0, minX - margin),
+            Math.min(1.0, maxX + margin),
+            Math.max(-1.0, minY - margin),
+            Math.min(1.0, maxY + margin));
+
+        if (trackedVisible) {
+            visibleIds[0] = trackedTagId;
+            visibleCount = 1;
+        }
+        sendIdFilter();
+
+        if (nearestDistance < DOWNSCALE_3X_DISTANCE) {
+            sendDownscale(3.0f);
+        } else if (nearestDistance < DOWNSCALE_2X_DISTANCE) {
+            sendDownscale(2.0f);
+        } else {
+            sendDownscale(1.0f);
+        }
+    }
+
+    /** Restores the full image, all tags and pipeline downscaling. */
+    public void reset() {
+        missedFrames = 0;
+        sendCrop(-1.0, 1.0, -1.0, 1.0);
+        if (filterActive) {
+            camera.setFiducialIdFilter(new int[0]);
+            sentIdFilter = new int[0];
+            filterActive = false;
+            configurationWrites++;
+        }
+        sendDownscale(DOWNSCALE_PIPELINE);
+    }
+
+    private boolean isNarrowed() {
+        return filterActive || sentCrop[0] > -1.0 || sentCrop[1] < 1.0 || sentCrop[2] > -1.0 || sentCrop[3] < 1.0;
+    }
+
+    private void sendCrop(double xMin, double xMax, double yMin, double yMax) {
+        if (Math.abs(xMin - sentCrop[0]) < MIN_CROP_CHANGE && Math.abs(xMax - sentCrop[1]) < MIN_CROP_CHANGE
+                && Math.abs(yMin - sentCrop[2]) < MIN_CROP_CHANGE && Math.abs(yMax - sentCrop[3]) < MIN_CROP_CHANGE) {
+            return;
+        }
+        sentCrop[0] = xMin;
+        sentCrop[1] = xMax;
+        sentCrop[2] = yMin;
+        sentCrop[3] = yMax;
+        camera.setCropWindow(xMin, xMax, yMin, yMax);
+        configurationWrites++;
+    }
+
+    private void sendIdFilter() {
+        if (filterActive && sentIdFilter.length == visibleCount
+                && Arrays.equals(sentIdFilter, 0, visibleCount, visibleIds, 0, visibleCount)) {
+            return;
+        }
+        sentIdFilter = Arrays.copyOf(visibleIds, visibleCount);
+        filterActive = true;
+        camera.setFiducialIdFilter(sentIdFilter);
+        configurationWrites++;
+    }
+
+    private void sendDownscale(float downscale) {
+        if (downscale == sentDownscale) {
+            return;
+        }
+        sentDownscale = downscale;
+        camera.setFiducialDownscaling(downscale);
+        configurationWrites++;
+    }
+
+    /** Number of tags predicted to be in view after the last update. */
+    public int getVisibleCount() {
+        return visibleCount;
+    }
+
+    /** Number of times a crop lost the target and the full image was restored. */
+    public int getRecoveries() {
+        return recoveries;
+    }
+
+    /** Total number of configuration changes sent to the camera. */
+    public int getConfigurationWrites() {
+        return configurationWrites;
+    }
+
+    /** Crop window last sent, as {xMin, xMax, yMin, yMax}. */
+    public double[] getCropWindow() {
+        return sentCrop;
+    }
+}
@@ -34,7 +34,7 @@ import edu.wpi.first.math.geometry.Translation2d;
 
 public class LimelightHelpers {
 
-    private static final Map<String, DoubleArrayEntry> doubleArrayEntries = new ConcurrentHashMap<>();
+    private static final Map<String, Map<String, DoubleArrayEntry>> doubleArrayEntries = new ConcurrentHashMap<>();
 
 
     public static class LimelightTarget_Retro {
@@ -394,7 +394,17 @@ public class LimelightHelpers {
         public double ambiguity = 0;
 
 
+        /**
+         * Makes an empty RawFiducial, for preallocated pools filled by decodeRawFiducials
+         */
+        public RawFiducial() {
+        }
+
         public RawFiducial(int id, double txnc, double tync, double ta, double distToCamera, double distToRobot, double ambiguity) {
+            set(id, txnc, tync, ta, distToCamera, distToRobot, ambiguity);
+        }
+
+        public void set(int id, double txnc, double tync, double ta, double distToCamera, double distToRobot, double ambiguity) {
             this.id = id;
             this.txnc = txnc;
             this.tync = tync;
@@ -420,7 +430,21 @@ public class LimelightHelpers {
         public double corner3_Y = 0;
 
 
+        /**
+         * Makes an empty RawDetection, for preallocated pools filled by decodeRawDetections
+         */
+        public RawDetection() {
+        }
+
         public RawDetection(int classId, double txnc, double tync, double ta, 
+            double corner0_X, double corner0_Y, 
+            double corner1_X, double corner1_Y, 
+            double corner2_X, double corner2_Y, 
+            double corner3_X, double corner3_Y ) {
+            set(classId, txnc, tync, ta, corner0_X, corner0_Y, corner1_X, corner1_Y, corner2_X, corner2_Y, corner3_X, corner3_Y);
+        }
+
+        public void set(int classId, double txnc, double tync, double ta, 
             double corner0_X, double corner0_Y, 
             double corner1_X, double corner1_Y, 
             double corner2_X, double corner2_Y, 
@@ -480,7 +504,88 @@ public class LimelightHelpers {
 
     }
 
-    private static ObjectMapper mapper;
+    /**
+     * Caller-owned, reusable decode target for bot pose estimates.
+     * <p>
+     * Holds the same information as PoseEstimate, but as primitives plus a preallocated
+     * RawFiducial pool, so decoding into it never allocates. Only the first
+     * rawFiducialCount entries of rawFiducials are valid after a decode.
+     */
+    public static class PoseEstimateBuffer {
+        public boolean valid;
+        public double x;
+        public double y;
+        public double yawDegrees;
+        public double timestampSeconds;
+        public double latency;
+        public int tagCount;
+        public double tagSpan;
+        public double avgTagDist;
+        public double avgTagArea;
+        public final RawFiducial[] rawFiducials;
+        public int rawFiducialCount;
+
+        /**
+         * Makes a PoseEstimateBuffer with room for the given number of fiducials
+         */
+        public PoseEstimateBuffer(int maxFiducials) {
+            rawFiducials = new RawFiducial[maxFiducials];
+            for (int i = 0; i < maxFiducials; i++) {
+                rawFiducials[i] = new RawFiducial();
+            }
+        }
+
+        public PoseEstimateBuffer() {
+            this(MAX_POOLED_FIDUCIALS);
+        }
+
+        /**
+         * Builds a Pose2d from the decoded values. Allocates; call only when the pose is needed.
+         */
+        public Pose2d toPose2d() {
+            return new Pose2d(x, y, Rotation2d.fromDegrees(yawDegrees));
+        }
+
+        public void clear() {
+            valid = false;
+            x = 0;
+            y = 0;
+            yawDegrees = 0;
+            timestampSeconds = 0;
+            latency = 0;
+            tagCount = 0;
+            tagSpan = 0;
+            avgTagDist = 0;
+            avgTagArea = 0;
+            rawFiducialCount = 0;
+        }
+    }
+
+    /**
+     * Default fiducial pool size for PoseEstimateBuffer; more than the tags a Limelight reports at once
+     */
+    public static final int MAX_POOLED_FIDUCIALS = 32;
+
+    private static final int POSE_ESTIMATE_HEADER_VALS = 11;
+    private static final int VALS_PER_FIDUCIAL = 7;
+    private static final int VALS_PER_DETECTION = 11;
+
+    private static volatile ObjectMapper mapper;
+
+    // ObjectMapper is thread-safe once configured, so one instance serves every caller
+    private static ObjectMapper getMapper() {
+        ObjectMapper result = mapper;
+        if (result == null) {
+            synchronized (LimelightHelpers.class) {
+                result = mapper;
+                if (result == null) {
+                    result = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+                    mapper = result;
+                }
+            }
+        }
+        return result;
+    }
 
     /**
      * Print JSON Parse time to the console in milliseconds
@@ -663,6 +768,126 @@ public class LimelightHelpers {
         return rawDetections;
     }
 
+    /**
+     * Decodes a botpose array into a caller-owned buffer without allocating.
+     * 
+     * @param poseArray Array from a botpose_* entry
+     * @param timestampMicros NT server timestamp of the array, in microseconds
+     * @param out Buffer to fill; cleared when the array is empty
+     * @return true if a pose was decoded
+     */
+    public static boolean decodeBotPoseEstimate(double[] poseArray, long timestampMicros, PoseEstimateBuffer out) {
+        if (poseArray.length < 6) {
+            out.clear();
+            return false;
+        }
+
+        out.x = poseArray[0];
+        out.y = poseArray[1];
+        out.yawDegrees = poseArray[5];
+        out.latency = extractArrayEntry(poseArray, 6);
+        out.tagCount = (int)extractArrayEntry(poseArray, 7);
+        out.tagSpan = extractArrayEntry(poseArray, 8);
+        out.avgTagDist = extractArrayEntry(poseArray, 9);
+        out.avgTagArea = extractArrayEntry(poseArray, 10);
+
+        // Convert server timestamp from microseconds to seconds and adjust for latency
+        out.timestampSeconds = (timestampMicros / 1000000.0) - (out.latency / 1000.0);
+
+        out.rawFiducialCount = 0;
+        if (poseArray.length == POSE_ESTIMATE_HEADER_VALS + VALS_PER_FIDUCIAL * out.tagCount) {
+            int count = Math.min(out.tagCount, out.rawFiducials.length);
+            for (int i = 0; i < count; i++) {
+                int baseIndex = POSE_ESTIMATE_HEADER_VALS + (i * VALS_PER_FIDUCIAL);
+                out.rawFiducials[i].set(
+                    (int)poseArray[baseIndex],
+                    poseArray[baseIndex + 1],
+                    poseArray[baseIndex + 2],
+                    poseArray[baseIndex + 3],
+                    poseArray[baseIndex + 4],
+                    poseArray[baseIndex + 5],
+                    poseArray[baseIndex + 6]);
+            }
+            out.rawFiducialCount = count;
+        }
+
+        out.valid = true;
+        return true;
+    }
+
+    /**
+     * Reads a botpose entry into a caller-owned buffer. Decoding does not allocate, but the
+     * read does: NetworkTables returns a new TimestampedDoubleArray and value array each call.
+     * Use decodeBotPoseEstimate directly when the array is already at hand.
+     */
+    public static boolean getBotPoseEstimate(String limelightName, String entryName, PoseEstimateBuffer out) {
+        TimestampedDoubleArray tsValue = getLimelightDoubleArrayEntry(limelightName, entryName).getAtomic();
+        return decodeBotPoseEstimate(tsValue.value, tsValue.timestamp, out);
+    }
+
+    /**
+     * Decodes a rawfiducials array into a preallocated pool without allocating.
+     * 
+     * @return number of pool entries filled
+     */
+    public static int decodeRawFiducials(double[] rawFiducialArray, RawFiducial[] pool) {
+        if (rawFiducialArray.length % VALS_PER_FIDUCIAL != 0) {
+            return 0;
+        }
+
+        int numFiducials = Math.min(rawFiducialArray.length / VALS_PER_FIDUCIAL, pool.length);
+        for (int i = 0; i < numFiducials; i++) {
+            int baseIndex = i * VALS_PER_FIDUCIAL;
+            pool[i].set(
+                (int)rawFiducialArray[baseIndex],
+                rawFiducialArray[baseIndex + 1],
+                rawFiducialArray[baseIndex + 2],
+                rawFiducialArray[baseIndex + 3],
+                rawFiducialArray[baseIndex + 4],
+                rawFiducialArray[baseIndex + 5],
+                rawFiducialArray[baseIndex + 6]);
+        }
+        return numFiducials;
+    }
+
+    public static int getRawFiducials(String limelightName, RawFiducial[] pool) {
+        return decodeRawFiducials(getLimelightDoubleArrayEntry(limelightName, "rawfiducials").get(), pool);
+    }
+
+    /**
+     * Decodes a rawdetections array into a preallocated pool without allocating.
+     * 
+     * @return number of pool entries filled
+     */
+    public static int decodeRawDetections(double[] rawDetectionArray, RawDetection[] pool) {
+        if (rawDetectionArray.length % VALS_PER_DETECTION != 0) {
+            return 0;
+        }
+
+        int numDetections = Math.min(rawDetectionArray.length / VALS_PER_DETECTION, pool.length);
+        for (int i = 0; i < numDetections; i++) {
+            int baseIndex = i * VALS_PER_DETECTION;
+            pool[i].set(
+                (int)rawDetectionArray[baseIndex],
+                rawDetectionArray[baseIndex + 1],
+                rawDetectionArray[baseIndex + 2],
+                rawDetectionArray[baseIndex + 3],
+                rawDetectionArray[baseIndex + 4],
+                rawDetectionArray[baseIndex + 5],
+                rawDetectionArray[baseIndex + 6],
+                rawDetectionArray[baseIndex + 7],
+                rawDetectionArray[baseIndex + 8],
+                rawDetectionArray[baseIndex + 9],
+                rawDetectionArray[baseIndex + 10],
+                extractArrayEntry(rawDetectionArray, baseIndex + 11));
+        }
+        return numDetections;
+    }
+
+    public static int getRawDetections(String limelightName, RawDetection[] pool) {
+        return decodeRawDetections(getLimelightDoubleArrayEntry(limelightName, "rawdetections").get(), pool);
+    }
+
     public static void printPoseEstimate(PoseEstimate pose) {
         if (pose == null) {
             System.out.println("No PoseEstimate available.");
@@ -711,11 +936,19 @@ public class LimelightHelpers {
     }
 
     public static DoubleArrayEntry getLimelightDoubleArrayEntry(String tableName, String entryName) {
-        String key = tableName + "/" + entryName;
-        return doubleArrayEntries.computeIfAbsent(key, k -> {
-            NetworkTable table = getLimelightNTTable(tableName);
-            return table.getDoubleArrayTopic(entryName).getEntry(new double[0]);
-        });
+        // Look up without building a key string so repeated calls do not allocate
+        Map<String, DoubleArrayEntry> tableEntries = doubleArrayEntries.get(tableName);
+        if (tableEntries == null) {
+            tableEntries = doubleArrayEntries.computeIfAbsent(tableName, k -> new ConcurrentHashMap<>());
+        }
+        DoubleArrayEntry entry = tableEntries.get(entryName);
+        if (entry == null) {
+            entry = tableEntries.computeIfAbsent(entryName, k -> {
+                NetworkTable table = getLimelightNTTable(tableName);
+                return table.getDoubleArrayTopic(entryName).getEntry(new double[0]);
+            });
+        }
+        return entry;
     }
     
     public static double getLimelightNTDouble(String tableName, String entryName) {
@@ -985,6 +1218,18 @@ public class LimelightHelpers {
         return getBotPoseEstimate(limelightName, "botpose_orb_wpiblue");
     }
 
+    /**
+     * Variant of getBotPoseEstimate_wpiBlue_MegaTag2 that decodes into a caller-owned buffer
+     * instead of building a PoseEstimate; the NetworkTables read still allocates
+     * 
+     * @param limelightName
+     * @param out
+     * @return true if a pose was decoded
+     */
+    public static boolean getBotPoseEstimate_wpiBlue_MegaTag2(String limelightName, PoseEstimateBuffer out) {
+        return getBotPoseEstimate(limelightName, "botpose_orb_wpiblue", out);
+    }
+
     /**
      * Gets the Pose2d for easy use with Odometry vision pose estimator
      * (addVisionMeasurement)
@@ -1240,15 +1485,19 @@ public class LimelightHelpers {
      * Parses Limelight's JSON results dump into a LimelightResults Object
      */
     public static LimelightResults getLatestResults(String limelightName) {
+        return parseResults(getJSONDump(limelightName));
+    }
+
+    /**
+     * Parses a JSON results dump into a LimelightResults Object. Safe to call from any thread.
+     */
+    public static LimelightResults parseResults(String json) {
 
         long start = System.nanoTime();
         LimelightHelpers.LimelightResults results = new LimelightHelpers.LimelightResults();
-        if (mapper == null) {
-            mapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-        }
 
         try {
-            results = mapper.readValue(getJSONDump(limelightName), LimelightResults.class);
+            results = getMapper().readValue(json, LimelightResults.class);
         } catch (JsonProcessingException e) {
             results.error = "lljson error: " + e.getMessage();
         }
@@ -0,0 +1,142 @@
+package frc.robot.subsystems.vision;
+
+import java.util.EnumSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import edu.wpi.first.networktables.NetworkTableEvent;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.StringSubscriber;
+import frc.robot.ThreadPolicy;
+import frc.robot.subsystems.vision.LimelightHelpers.LimelightResults;
+
+/**
+ * Parses a Limelight's JSON results dump on a background thread.
+ * <p>
+ * A NetworkTables listener hands each new "json" value to a low-priority daemon thread,
+ * which parses it and publishes the result through a volatile reference. Callers on the
+ * main loop only read that reference, so they never pay the multi-millisecond Jackson
+ * parse. Only the newest unparsed dump is kept: if a dump arrives while the previous
+ * one is still waiting, the older one is superseded and counted rather than parsed late.
+ * <p>
+ * Published results are never modified after they are handed out; treat them as read-only.
+ */
+public class LimelightResultsService implements AutoCloseable {
+    private final String limelightName;
+    private final StringSubscriber jsonSubscriber;
+    private final int listenerHandle;
+    private final Thread parserThread;
+    private volatile boolean running = true;
+
+    // Latest dump waiting to be parsed (null when the parser is caught up)
+    private final AtomicReference<String> pendingJson = new AtomicReference<>();
+    private volatile LimelightResults latestResults = new LimelightResults();
+
+    // Metrics
+    private final AtomicLong parsedCount = new AtomicLong();
+    private final AtomicLong supersededCount = new AtomicLong();
+    private final AtomicLong errorCount = new AtomicLong();
+    private volatile double lastParseMillis = 0.0;
+    private volatile double maxParseMillis = 0.0;
+
+    public LimelightResultsService(String limelightName) {
+        this.limelightName = LimelightHelpers.sanitizeName(limelightName);
+
+        parserThread = new Thread(this::runParser, "LimelightJSON-" + this.limelightName);
+        parserThread.setDaemon(true);
+        parserThread.setPriority(Thread.MIN_PRIORITY);
+        parserThread.start();
+
+        jsonSubscriber = LimelightHelpers.getLimelightNTTable(this.limelightName)
+            .getStringTopic("json").subscribe("");
+        listenerHandle = NetworkTableInstance.getDefault().addListener(
+            jsonSubscriber,
+            EnumSet.of(NetworkTableEvent.Kind.kValueAll),
+            this::onJson);
+    }
+
+    // Runs on the NetworkTables listener thread; must stay cheap
+    private void onJson(NetworkTableEvent event) {
+        if (event.valueData == null) {
+            return;
+        }
+        String json = event.valueData.value.getString();
+        if (json == null || json.isEmpty()) {
+            return;
+        }
+        if (pendingJson.getAndSet(json) != null) {
+            supersededCount.incrementAndGet();
+        }
+        LockSupport.unpark(parserThread);
+    }
+
+    private void runParser() {
+        ThreadPolicy.demoteCurrentThread();
+        while (running) {
+            String json = pendingJson.getAndSet(null);
+            if (json == null) {
+                LockSupport.park(this);
+                continue;
+            }
+
+            LimelightResults results = LimelightHelpers.parseResults(json);
+            lastParseMillis = results.latency_jsonParse;
+            if (results.latency_jsonParse > maxParseMillis) {
+                maxParseMillis = results.latency_jsonParse;
+            }
+            if (results.error != null) {
+                errorCount.incrementAndGet();
+            }
+            parsedCount.incrementAndGet();
+            latestResults = results;
+        }
+    }
+
+    /** Newest fully parsed results. Never blocks and never parses. */
+    public LimelightResults getLatestResults() {
+        return latestResults;
+    }
+
+    public String getLimelightName() {
+        return limelightName;
+    }
+
+    /** Dumps received but not yet parsed (0 or 1, since only the newest is kept). */
+    public int getQueueDepth() {
+        return pendingJson.get() == null ? 0 : 1;
+    }
+
+    /** Dumps replaced by a newer one before the parser reached them. */
+    public long getSupersededCount() {
+        return supersededCount.get();
+    }
+
+    public long getParsedCount() {
+        return parsedCount.get();
+    }
+
+    public long getErrorCount() {
+        return errorCount.get();
+    }
+
+    public double getLastParseMillis() {
+        return lastParseMillis;
+    }
+
+    public double getMaxParseMillis() {
+        return maxParseMillis;
+    }
+
+    public void resetMaxParseMillis() {
+        maxParseMillis = 0.0;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        NetworkTableInstance.getDefault().removeListener(listenerHandle);
+        jsonSubscriber.close();
+        LockSupport.unpark(parserThread);
+    }
+}
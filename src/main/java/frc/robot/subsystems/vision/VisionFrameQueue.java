@@ -0,0 +1,136 @@
+package frc.robot.subsystems.vision;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded single-producer/single-consumer ring of Limelight frames.
+ * <p>
+ * The NetworkTables listener thread is the only producer and the main robot loop is
+ * the only consumer, so the queue needs no locks: each side owns one index and
+ * publishes it with release semantics. Slots are preallocated and copied in and out,
+ * so steady-state ingestion does not allocate.
+ */
+public class VisionFrameQueue {
+    /** One complete Limelight frame, copied out of NetworkTables in a single callback. */
+    public static class VisionFrame {
+        // Timing data
+        public double timestampSeconds = 0.0; // Capture time (server time minus latency)
+        public double serverTimeSeconds = 0.0; // NT server timestamp of the frame
+        public double pipelineLatency = 0.0; // ms
+        public double captureLatency = 0.0; // ms
+        public double receiveTimeSeconds = 0.0; // Local NT arrival time
+        public double heartbeat = 0.0; // Limelight frame counter
+
+        // Target data
+        public boolean hasTargets = false;
+        public double horizontalAngleRadians = 0.0;
+        public double verticalAngleRadians = 0.0;
+        public double area = 0.0;
+        public int tagId = -1;
+
+        // Pose data
+        public final double[] botpose = new double[6];
+
+        // MegaTag2 estimate (blue origin), only set when a new estimate arrived with this frame
+        public boolean hasPoseEstimate = false;
+        public double poseTimestampSeconds = 0.0;
+        public double poseX = 0.0;
+        public double poseY = 0.0;
+        public double poseYawDegrees = 0.0;
+        public int poseTagCount = 0;
+        public double poseAverageTagDistance = 0.0;
+        public double poseAverageAmbiguity = 0.0;
+
+        public void copyFrom(VisionFrame other) {
+            timestampSeconds = other.timestampSeconds;
+            serverTimeSeconds = other.serverTimeSeconds;
+            pipelineLatency = other.pipelineLatency;
+            captureLatency = other.captureLatency;
+            receiveTimeSeconds = other.receiveTimeSeconds;
+            heartbeat = other.heartbeat;
+            hasTargets = other.hasTargets;
+            horizontalAngleRadians = other.horizontalAngleRadians;
+            verticalAngleRadians = other.verticalAngleRadians;
+            area = other.area;
+            tagId = other.tagId;
+            System.arraycopy(other.botpose, 0, botpose, 0, botpose.length);
+            hasPoseEstimate = other.hasPoseEstimate;
+            poseTimestampSeconds = other.poseTimestampSeconds;
+            poseX = other.poseX;
+            poseY = other.poseY;
+            poseYawDegrees = other.poseYawDegrees;
+            poseTagCount = other.poseTagCount;
+            poseAverageTagDistance = other.poseAverageTagDistance;
+            poseAverageAmbiguity = other.poseAverageAmbiguity;
+        }
+    }
+
+    private final VisionFrame[] slots;
+    private final int mask;
+
+    // Next slot the consumer will read / the producer will write
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong droppedFrames = new AtomicLong();
+
+    /**
+     * @param capacity Maximum number of buffered frames, rounded up to a power of two
+     */
+    public VisionFrameQueue(int capacity) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        slots = new VisionFrame[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new VisionFrame();
+        }
+        mask = size - 1;
+    }
+
+    /**
+     * Returns the slot the producer should fill next, or null if the queue is full.
+     * The frame only becomes visible to the consumer after {@link #commit()}.
+     * Producer thread only.
+     */
+    public VisionFrame claim() {
+        long t = tail.get();
+        if (t - head.getAcquire() >= slots.length) {
+            droppedFrames.incrementAndGet();
+            return null;
+        }
+        return slots[(int) (t & mask)];
+    }
+
+    /** Publishes the slot returned by the last successful {@link #claim()}. Producer thread only. */
+    public void commit() {
+        tail.setRelease(tail.get() + 1);
+    }
+
+    /**
+     * Copies the oldest queued frame into {@code out} and removes it from the queue.
+     * Consumer thread only.
+     *
+     * @return true if a frame was copied, false if the queue was empty
+     */
+    public boolean poll(VisionFrame out) {
+        long h = head.get();
+        if (h >= tail.getAcquire()) {
+            return false;
+        }
+        out.copyFrom(slots[(int) (h & mask)]);
+        head.setRelease(h + 1);
+        return true;
+    }
+
+    /** Number of frames currently waiting to be drained. */
+    public int size() {
+        return (int) (tail.getAcquire() - head.getAcquire());
+    }
+
+    /** Total number of frames rejected because the queue was full. */
+    public long getDroppedFrames() {
+        return droppedFrames.get();
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+}
@@ -4,10 +4,63 @@
 */
 package frc.robot.subsystems.vision;
 
+import org.littletonrobotics.junction.AutoLog;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Transform3d;
+
 public interface VisionIO {
     public default void updateInputs(VisionIOInputs inputs) {}
     public default void setLeds(boolean on) {}
+    public default void setPipeline(int pipeline) {}
+
+    /**
+     * Sends the robot heading used by MegaTag2. Implementations should not flush;
+     * the caller flushes once after updating every camera.
+     */
+    public default void setRobotOrientation(double yawDegrees, double yawRateDegreesPerSecond) {}
+
+    /** Limits detection to a window of the image, in normalized coordinates from -1 to 1. */
+    public default void setCropWindow(double xMin, double xMax, double yMin, double yMax) {}
 
+    /** Limits detection to the given tag IDs; an empty array restores the pipeline's filter. */
+    public default void setFiducialIdFilter(int[] ids) {}
+
+    /** Overrides the detector's downscaling; 0 restores the pipeline setting. */
+    public default void setFiducialDownscaling(float downscale) {}
+
+    /** Camera mounting relative to robot center, or null if unknown. */
+    public default Transform3d getRobotToCamera() {
+        return null;
+    }
+
+    /** A single target sighting, one per Limelight frame received since the last update. */
+    public static record TargetObservation(
+        double timestamp,
+        double horizontalAngleRadians,
+        double verticalAngleRadians,
+        int tagId) {}
+
+    /**
+     * Timing of one received frame. Transport delay is the time between the Limelight
+     * publishing the frame and NetworkTables delivering it to the robot.
+     */
+    public static record FrameTiming(
+        double receiveTimestamp,
+        double pipelineLatencyMs,
+        double captureLatencyMs,
+        double transportDelayMs,
+        double heartbeat) {}
+
+    /** A MegaTag2 robot pose (blue origin) with what is needed to weight it. */
+    public static record PoseObservation(
+        double timestamp,
+        Pose2d pose,
+        int tagCount,
+        double averageTagDistance,
+        double averageAmbiguity) {}
+
+    @AutoLog
     public static class VisionIOInputs {
         // Timestamp data
         public double lastTimeStamp = 0.0;
@@ -16,6 +69,7 @@ public interface VisionIO {
         public boolean hasTargets = false;
         public double verticalAngleRadians = 0.0;
         public double horizontalAngleRadians = 0.0;
+        public double area = 0.0;
         
         // AprilTag specific data  
         public double[] botpose = new double[6];
@@ -24,5 +78,23 @@ public interface VisionIO {
         // Latency data
         public double pipelineLatency = 0.0;
         public double captureLatency = 0.0;
+
+        // Every frame received since the last update, oldest first
+        public TargetObservation[] targetObservations = new TargetObservation[0];
+        public PoseObservation[] poseObservations = new PoseObservation[0];
+        public FrameTiming[] frameTimings = new FrameTiming[0];
+        public double heartbeat = 0.0;
+        public long droppedFrames = 0;
+        // Botpose or MegaTag2 values dropped because they came from a different frame
+        public long poseMismatches = 0;
+
+        // Every tag in the newest parsed JSON results, when the camera parses them
+        public int[] visibleTagIds = new int[0];
+        public double jsonParseMillis = 0.0;
+        public double jsonMaxParseMillis = 0.0;
+        public int jsonQueueDepth = 0;
+        public long jsonParsedCount = 0;
+        public long jsonSupersededCount = 0;
+        public long jsonErrorCount = 0;
     }
 }
\ No newline at end of file
@@ -1,50 +1,297 @@
 package frc.robot.subsystems.vision;
 
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.networktables.DoubleArraySubscriber;
+import edu.wpi.first.networktables.DoubleSubscriber;
 import edu.wpi.first.networktables.NetworkTable;
 import edu.wpi.first.networktables.NetworkTableEntry;
+import edu.wpi.first.networktables.NetworkTableEvent;
 import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.NetworkTableValue;
+import edu.wpi.first.networktables.TimestampedDoubleArray;
 import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.math.util.Units;
+import frc.robot.subsystems.vision.LimelightHelpers.LimelightResults;
+import frc.robot.subsystems.vision.LimelightHelpers.PoseEstimateBuffer;
+import frc.robot.subsystems.vision.VisionFrameQueue.VisionFrame;
 
 public class VisionIOLimelight implements VisionIO {
+    /** How frames get from NetworkTables into {@link #updateInputs(VisionIOInputs)}. */
+    public enum IngestionMode {
+        /** Read each entry once per robot loop. Simple, but can mix values from two frames. */
+        POLLING,
+        /** Queue every complete frame from a NetworkTables listener and drain the queue each loop. */
+        LISTENER
+    }
+
+    // Enough for ~350 ms of frames at 90 FPS before the main loop has to drain
+    private static final int FRAME_QUEUE_CAPACITY = 32;
+
+    // Entries from one Limelight update reach the server a few microseconds apart; frames
+    // at 90 FPS are 11 ms apart, so anything within 1 ms belongs to the same frame
+    private static final long SAME_FRAME_TOLERANCE_MICROS = 1000;
+
+    // Layout of the Limelight "t2d" array, which carries a whole frame's targeting data atomically
+    private static final int T2D_LENGTH = 17;
+    private static final int T2D_VALID = 0;
+    private static final int T2D_PIPELINE_LATENCY = 2;
+    private static final int T2D_CAPTURE_LATENCY = 3;
+    private static final int T2D_TX = 4;
+    private static final int T2D_TY = 5;
+    private static final int T2D_TA = 8;
+    private static final int T2D_TID = 9;
+
+    private final String tableName;
+    private final Transform3d robotToCamera;
+    private final IngestionMode mode;
+
     // NetworkTable entries for Limelight data
     private final NetworkTable limelightTable;
     private final NetworkTableEntry botposeEntry;
     private final NetworkTableEntry validEntry;
     private final NetworkTableEntry txEntry;
     private final NetworkTableEntry tyEntry;
+    private final NetworkTableEntry taEntry;
     private final NetworkTableEntry tagIdEntry;
     private final NetworkTableEntry ledEntry;
+    private final NetworkTableEntry pipelineEntry;
     private final NetworkTableEntry pipelineLatencyEntry;
     private final NetworkTableEntry captureLatencyEntry;
+    private final NetworkTableEntry heartbeatEntry;
+
+    // Listener mode state
+    private final VisionFrameQueue frameQueue;
+    private final VisionFrame drainedFrame = new VisionFrame();
+    private final TargetObservation[] targetScratch;
+    private final PoseObservation[] poseScratch;
+    private final FrameTiming[] timingScratch;
+    private final PoseEstimateBuffer listenerPoseEstimate = new PoseEstimateBuffer(); // Listener thread only
+    private final AtomicLong poseMismatches = new AtomicLong();
+    private DoubleArraySubscriber t2dSubscriber;
+    private DoubleArraySubscriber botposeSubscriber;
+    private DoubleArraySubscriber megaTag2Subscriber;
+    private DoubleSubscriber heartbeatSubscriber;
+    private int listenerHandle = 0;
+
+    // JSON results parsed in the background, or null when not parsing them
+    private final LimelightResultsService resultsService;
+    private long lastParsedCount = -1;
+    private int[] visibleTagIds = new int[0];
+
+    // Polling mode state
+    private final PoseEstimateBuffer polledPoseEstimate = new PoseEstimateBuffer();
+    private double lastPolledPoseTimestamp = 0.0;
 
     // Cached values to avoid repeated NT queries
     private double lastTimeStamp = 0.0;
     private boolean hasTargets = false;
     private double yawRadians = 0.0;
     private double pitchRadians = 0.0;
+    private double area = 0.0;
     private double[] botpose = new double[6];
     private int tagId = -1;
     private double pipelineLatency = 0.0;
     private double captureLatency = 0.0;
+    private double heartbeat = 0.0;
+    private double previousHeartbeat = 0.0;
 
     public VisionIOLimelight(String tableName) {
+        this(tableName, null, IngestionMode.LISTENER);
+    }
+
+    /**
+     * @param tableName     NetworkTables name of the Limelight
+     * @param robotToCamera Camera mounting relative to robot center, or null to keep the
+     *                      transform configured in the Limelight web UI
+     */
+    public VisionIOLimelight(String tableName, Transform3d robotToCamera) {
+        this(tableName, robotToCamera, IngestionMode.LISTENER);
+    }
+
+    /**
+     * @param tableName      NetworkTables name of the Limelight
+     * @param robotToCamera  Camera mounting relative to robot center, or null if unknown
+     * @param pushCameraPose Whether to send robotToCamera to the Limelight. When false the
+     *                       camera keeps the pose configured in its web UI, and robotToCamera
+     *                       is only used for predictions such as the crop window.
+     * @param resultsService Background parser for the Limelight's JSON results, used to
+     *                       report every tag in view; closed with this IO
+     */
+    public VisionIOLimelight(String tableName, Transform3d robotToCamera, boolean pushCameraPose,
+            LimelightResultsService resultsService) {
+        this(tableName, robotToCamera, pushCameraPose, IngestionMode.LISTENER, resultsService);
+    }
+
+    public VisionIOLimelight(String tableName, Transform3d robotToCamera, IngestionMode mode) {
+        this(tableName, robotToCamera, true, mode, null);
+    }
+
+    public VisionIOLimelight(String tableName, Transform3d robotToCamera, boolean pushCameraPose,
+            IngestionMode mode, LimelightResultsService resultsService) {
+        this.tableName = tableName;
+        this.robotToCamera = robotToCamera;
+        this.mode = mode;
+        this.resultsService = resultsService;
+
         // Initialize NetworkTable entries
         limelightTable = NetworkTableInstance.getDefault().getTable(tableName);
         botposeEntry = limelightTable.getEntry("botpose");
         validEntry = limelightTable.getEntry("tv");
         txEntry = limelightTable.getEntry("tx");
         tyEntry = limelightTable.getEntry("ty");
+        taEntry = limelightTable.getEntry("ta");
         tagIdEntry = limelightTable.getEntry("tid");
         ledEntry = limelightTable.getEntry("ledMode");
+        pipelineEntry = limelightTable.getEntry("pipeline");
         pipelineLatencyEntry = limelightTable.getEntry("tl");
         captureLatencyEntry = limelightTable.getEntry("cl");
+        heartbeatEntry = limelightTable.getEntry("hb");
+
+        frameQueue = new VisionFrameQueue(FRAME_QUEUE_CAPACITY);
+        targetScratch = new TargetObservation[frameQueue.capacity()];
+        poseScratch = new PoseObservation[frameQueue.capacity()];
+        timingScratch = new FrameTiming[frameQueue.capacity()];
+
+        if (robotToCamera != null && pushCameraPose) {
+            // Lets the Limelight report robot poses instead of camera poses
+            LimelightHelpers.setCameraPose_RobotSpace(tableName,
+                robotToCamera.getX(),
+                robotToCamera.getY(),
+                robotToCamera.getZ(),
+                Units.radiansToDegrees(robotToCamera.getRotation().getX()),
+                Units.radiansToDegrees(robotToCamera.getRotation().getY()),
+                Units.radiansToDegrees(robotToCamera.getRotation().getZ()));
+        }
+
+        if (mode == IngestionMode.LISTENER) {
+            startListener();
+        }
+    }
+
+    private void startListener() {
+        t2dSubscriber = limelightTable.getDoubleArrayTopic("t2d").subscribe(new double[0]);
+        botposeSubscriber = limelightTable.getDoubleArrayTopic("botpose").subscribe(new double[0]);
+        megaTag2Subscriber = limelightTable.getDoubleArrayTopic("botpose_orb_wpiblue").subscribe(new double[0]);
+        heartbeatSubscriber = limelightTable.getDoubleTopic("hb").subscribe(0.0);
+
+        // Runs on the NetworkTables listener thread, once per frame the Limelight publishes
+        listenerHandle = limelightTable.getInstance().addListener(
+            t2dSubscriber,
+            EnumSet.of(NetworkTableEvent.Kind.kValueAll),
+            this::onFrame);
+    }
+
+    private void onFrame(NetworkTableEvent event) {
+        if (event.valueData == null) {
+            return;
+        }
+
+        NetworkTableValue value = event.valueData.value;
+        double[] t2d = value.getDoubleArray();
+        if (t2d.length < T2D_LENGTH) {
+            return; // Older firmware or a partially initialized table
+        }
+
+        VisionFrame frame = frameQueue.claim();
+        if (frame == null) {
+            return; // Queue full; the drop is counted by the queue
+        }
+
+        frame.serverTimeSeconds = value.getServerTime() / 1e6;
+        frame.receiveTimeSeconds = value.getTime() / 1e6;
+        frame.heartbeat = heartbeatSubscriber.get();
+        frame.pipelineLatency = t2d[T2D_PIPELINE_LATENCY];
+        frame.captureLatency = t2d[T2D_CAPTURE_LATENCY];
+        frame.timestampSeconds = frame.serverTimeSeconds
+            - (frame.pipelineLatency + frame.captureLatency) / 1000.0;
+
+        frame.hasTargets = t2d[T2D_VALID] > 0.5;
+        if (frame.hasTargets) {
+            frame.horizontalAngleRadians = Units.degreesToRadians(t2d[T2D_TX]);
+            frame.verticalAngleRadians = Units.degreesToRadians(t2d[T2D_TY]);
+            frame.area = t2d[T2D_TA];
+            frame.tagId = (int) t2d[T2D_TID];
+
+            // The Limelight publishes botpose in the same update as t2d. The newest value may
+            // already belong to a later frame if this listener is behind, so only use it when
+            // its server time is close to this frame's.
+            TimestampedDoubleArray pose = botposeSubscriber.getAtomic();
+            if (isSameFrame(pose.serverTime, value.getServerTime())) {
+                int count = Math.min(pose.value.length, frame.botpose.length);
+                System.arraycopy(pose.value, 0, frame.botpose, 0, count);
+                Arrays.fill(frame.botpose, count, frame.botpose.length, 0.0);
+            } else {
+                poseMismatches.incrementAndGet();
+                Arrays.fill(frame.botpose, 0.0);
+            }
+        } else {
+            frame.horizontalAngleRadians = 0.0;
+            frame.verticalAngleRadians = 0.0;
+            frame.area = 0.0;
+            frame.tagId = -1;
+            Arrays.fill(frame.botpose, 0.0);
+        }
+
+        // Decode MegaTag2 here, off the main thread; an estimate from another frame is dropped
+        frame.hasPoseEstimate = false;
+        TimestampedDoubleArray megaTag2 = megaTag2Subscriber.getAtomic();
+        if (!isSameFrame(megaTag2.serverTime, value.getServerTime())) {
+            poseMismatches.incrementAndGet();
+        } else if (LimelightHelpers.decodeBotPoseEstimate(megaTag2.value, megaTag2.timestamp, listenerPoseEstimate)
+                && listenerPoseEstimate.tagCount > 0) {
+            copyPoseEstimate(listenerPoseEstimate, frame);
+        }
+
+        frameQueue.commit();
+    }
+
+    private static boolean isSameFrame(long serverTimeMicros, long frameServerTimeMicros) {
+        return Math.abs(serverTimeMicros - frameServerTimeMicros) <= SAME_FRAME_TOLERANCE_MICROS;
+    }
+
+    private static void copyPoseEstimate(PoseEstimateBuffer estimate, VisionFrame frame) {
+        frame.hasPoseEstimate = true;
+        frame.poseTimestampSeconds = estimate.timestampSeconds;
+        frame.poseX = estimate.x;
+        frame.poseY = estimate.y;
+        frame.poseYawDegrees = estimate.yawDegrees;
+        frame.poseTagCount = estimate.tagCount;
+        frame.poseAverageTagDistance = estimate.avgTagDist;
+        frame.poseAverageAmbiguity = getAverageAmbiguity(estimate);
+    }
+
+    private static double getAverageAmbiguity(PoseEstimateBuffer estimate) {
+        if (estimate.rawFiducialCount == 0) {
+            return 0.0;
+        }
+        double total = 0.0;
+        for (int i = 0; i < estimate.rawFiducialCount; i++) {
+            total += estimate.rawFiducials[i].ambiguity;
+        }
+        return total / estimate.rawFiducialCount;
+    }
+
+    private static PoseObservation toPoseObservation(VisionFrame frame) {
+        return new PoseObservation(
+            frame.poseTimestampSeconds,
+            new Pose2d(frame.poseX, frame.poseY, Rotation2d.fromDegrees(frame.poseYawDegrees)),
+            frame.poseTagCount,
+            frame.poseAverageTagDistance,
+            frame.poseAverageAmbiguity);
     }
 
     private synchronized void updateValues() {
         // Update latency values first to calculate accurate timestamp
         pipelineLatency = pipelineLatencyEntry.getDouble(0.0);
         captureLatency = captureLatencyEntry.getDouble(0.0);
+        previousHeartbeat = heartbeat;
+        heartbeat = heartbeatEntry.getDouble(0.0);
         
         // Calculate timestamp accounting for both pipeline and capture latency
         lastTimeStamp = Timer.getFPGATimestamp() - (pipelineLatency + captureLatency) / 1000.0;
@@ -55,34 +302,190 @@ public class VisionIOLimelight implements VisionIO {
         if (hasTargets) {
             yawRadians = Units.degreesToRadians(txEntry.getDouble(0.0));
             pitchRadians = Units.degreesToRadians(tyEntry.getDouble(0.0));
+            area = taEntry.getDouble(0.0);
             botpose = botposeEntry.getDoubleArray(new double[6]);
             tagId = (int) tagIdEntry.getDouble(-1.0);
         } else {
             // Reset values when no target is detected
             yawRadians = 0.0;
             pitchRadians = 0.0;
+            area = 0.0;
             botpose = new double[6];
             tagId = -1;
         }
     }
 
+    /**
+     * Drains every queued frame. The newest frame becomes the "latest" values, and every
+     * frame with a target or pose is reported as an observation so nothing between loops is lost.
+     *
+     * @param inputs Inputs to fill with this update's observations
+     */
+    private synchronized void drainFrames(VisionIOInputs inputs) {
+        int targetCount = 0;
+        int poseCount = 0;
+        int timingCount = 0;
+        while (frameQueue.poll(drainedFrame)) {
+            lastTimeStamp = drainedFrame.timestampSeconds;
+            pipelineLatency = drainedFrame.pipelineLatency;
+            captureLatency = drainedFrame.captureLatency;
+            hasTargets = drainedFrame.hasTargets;
+            yawRadians = drainedFrame.horizontalAngleRadians;
+            pitchRadians = drainedFrame.verticalAngleRadians;
+            area = drainedFrame.area;
+            tagId = drainedFrame.tagId;
+            heartbeat = drainedFrame.heartbeat;
+            System.arraycopy(drainedFrame.botpose, 0, botpose, 0, botpose.length);
+
+            if (timingCount < timingScratch.length) {
+                timingScratch[timingCount++] = new FrameTiming(
+                    drainedFrame.receiveTimeSeconds,
+                    drainedFrame.pipelineLatency,
+                    drainedFrame.captureLatency,
+                    (drainedFrame.receiveTimeSeconds - drainedFrame.serverTimeSeconds) * 1000.0,
+                    drainedFrame.heartbeat);
+            }
+
+            if (drainedFrame.hasTargets && targetCount < targetScratch.length) {
+                targetScratch[targetCount++] = new TargetObservation(
+                    drainedFrame.timestampSeconds,
+                    drainedFrame.horizontalAngleRadians,
+                    drainedFrame.verticalAngleRadians,
+                    drainedFrame.tagId);
+            }
+            if (drainedFrame.hasPoseEstimate && poseCount < poseScratch.length) {
+                poseScratch[poseCount++] = toPoseObservation(drainedFrame);
+            }
+        }
+
+        inputs.targetObservations = Arrays.copyOf(targetScratch, targetCount);
+        inputs.poseObservations = Arrays.copyOf(poseScratch, poseCount);
+        inputs.frameTimings = Arrays.copyOf(timingScratch, timingCount);
+        inputs.droppedFrames = frameQueue.getDroppedFrames();
+        inputs.poseMismatches = poseMismatches.get();
+    }
+
+    private void pollPoseEstimate(VisionIOInputs inputs) {
+        if (LimelightHelpers.getBotPoseEstimate_wpiBlue_MegaTag2(tableName, polledPoseEstimate)
+                && polledPoseEstimate.tagCount > 0
+                && polledPoseEstimate.timestampSeconds > lastPolledPoseTimestamp) {
+            lastPolledPoseTimestamp = polledPoseEstimate.timestampSeconds;
+            copyPoseEstimate(polledPoseEstimate, drainedFrame);
+            inputs.poseObservations = new PoseObservation[] { toPoseObservation(drainedFrame) };
+        } else {
+            inputs.poseObservations = new PoseObservation[0];
+        }
+    }
+
+    /* Takes the newest parsed results without waiting for the parser */
+    private void updateResults(VisionIOInputs inputs) {
+        long parsedCount = resultsService.getParsedCount();
+        if (parsedCount != lastParsedCount) {
+            lastParsedCount = parsedCount;
+            LimelightResults results = resultsService.getLatestResults();
+            visibleTagIds = new int[results.targets_Fiducials.length];
+            for (int i = 0; i < visibleTagIds.length; i++) {
+                visibleTagIds[i] = (int) results.targets_Fiducials[i].fiducialID;
+            }
+        }
+        inputs.visibleTagIds = visibleTagIds;
+
+        inputs.jsonParseMillis = resultsService.getLastParseMillis();
+        inputs.jsonMaxParseMillis = resultsService.getMaxParseMillis();
+        inputs.jsonQueueDepth = resultsService.getQueueDepth();
+        inputs.jsonParsedCount = parsedCount;
+        inputs.jsonSupersededCount = resultsService.getSupersededCount();
+        inputs.jsonErrorCount = resultsService.getErrorCount();
+    }
+
     @Override
     public synchronized void updateInputs(VisionIOInputs inputs) {
-        updateValues(); // Ensure values are fresh
+        if (mode == IngestionMode.LISTENER) {
+            drainFrames(inputs);
+        } else {
+            updateValues(); // Ensure values are fresh
+            inputs.targetObservations = hasTargets
+                ? new TargetObservation[] {
+                    new TargetObservation(lastTimeStamp, yawRadians, pitchRadians, tagId) }
+                : new TargetObservation[0];
+            pollPoseEstimate(inputs);
+            // Polling sees at most one frame per loop; a new heartbeat means a new frame
+            inputs.frameTimings = heartbeat != previousHeartbeat
+                ? new FrameTiming[] {
+                    new FrameTiming(Timer.getFPGATimestamp(), pipelineLatency, captureLatency, 0.0, heartbeat) }
+                : new FrameTiming[0];
+        }
 
         // Copy cached values to inputs
         inputs.lastTimeStamp = this.lastTimeStamp;
         inputs.horizontalAngleRadians = this.yawRadians;
         inputs.verticalAngleRadians = this.pitchRadians;
+        inputs.area = this.area;
         inputs.hasTargets = this.hasTargets;
         inputs.botpose = this.botpose.clone(); // Create defensive copy
         inputs.tagId = this.tagId;
         inputs.pipelineLatency = this.pipelineLatency;
         inputs.captureLatency = this.captureLatency;
+        inputs.heartbeat = this.heartbeat;
+
+        if (resultsService != null) {
+            updateResults(inputs);
+        }
     }
 
-    @Override 
+    @Override
     public void setLeds(boolean on) {
         ledEntry.setNumber(on ? 3 : 1); // 3=force on, 1=force off
     }
+
+    @Override
+    public void setPipeline(int pipeline) {
+        pipelineEntry.setNumber(pipeline);
+    }
+
+    @Override
+    public void setRobotOrientation(double yawDegrees, double yawRateDegreesPerSecond) {
+        LimelightHelpers.SetRobotOrientation_NoFlush(tableName, yawDegrees, yawRateDegreesPerSecond, 0, 0, 0, 0);
+    }
+
+    @Override
+    public void setCropWindow(double xMin, double xMax, double yMin, double yMax) {
+        LimelightHelpers.setCropWindow(tableName, xMin, xMax, yMin, yMax);
+    }
+
+    @Override
+    public void setFiducialIdFilter(int[] ids) {
+        LimelightHelpers.SetFiducialIDFiltersOverride(tableName, ids);
+    }
+
+    @Override
+    public void setFiducialDownscaling(float downscale) {
+        LimelightHelpers.SetFiducialDownscalingOverride(tableName, downscale);
+    }
+
+    @Override
+    public Transform3d getRobotToCamera() {
+        return robotToCamera;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    /** Stops the frame listener and releases its subscribers. */
+    public void close() {
+        if (listenerHandle != 0) {
+            limelightTable.getInstance().removeListener(listenerHandle);
+            listenerHandle = 0;
+        }
+        if (t2dSubscriber != null) {
+            t2dSubscriber.close();
+            botposeSubscriber.close();
+            megaTag2Subscriber.close();
+            heartbeatSubscriber.close();
+        }
+        if (resultsService != null) {
+            resultsService.close();
+        }
+    }
 }
\ No newline at end of file
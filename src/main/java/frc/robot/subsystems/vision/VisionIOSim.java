@@ -0,0 +1,292 @@
+package frc.robot.subsystems.vision;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import edu.wpi.first.apriltag.AprilTag;
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.apriltag.AprilTagFields;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.math.geometry.Translation3d;
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * Simulated Limelight driven by the simulated drivetrain pose and the AprilTag field layout.
+ * <p>
+ * Each update projects every tag through a pinhole camera model and produces the same
+ * inputs a real Limelight would: the largest visible tag as tx/ty/ta, a field-centered
+ * botpose, a MegaTag2 pose and per-frame timing. Frames are held in a delay line for the
+ * configured latency and noise is added from a seeded generator, so runs are repeatable.
+ * <p>
+ * The camera keeps its own clock that advances one robot period per update instead of
+ * reading wall time, so it produces the same frames when the robot loop runs faster than
+ * real time (e.g. under {@code setUseTiming(false)}).
+ */
+public class VisionIOSim implements VisionIO {
+    /** Optics, timing and noise of the simulated camera. */
+    public static record CameraModel(
+        double horizontalFovDegrees,
+        double verticalFovDegrees,
+        double framesPerSecond,
+        double latencyMs, // Capture plus pipeline
+        double angleNoiseDegrees, // Standard deviation of tx/ty
+        double translationNoiseMeters, // Standard deviation of pose x/y
+        double maxDistanceMeters) {
+
+        /** A Limelight 3 running an AprilTag pipeline at full resolution. */
+        public static final CameraModel LIMELIGHT_3 = new CameraModel(62.5, 48.9, 30.0, 35.0, 0.1, 0.02, 6.0);
+
+        /** The same camera with no noise, for exact regression tests. */
+        public static final CameraModel LIMELIGHT_3_IDEAL = new CameraModel(62.5, 48.9, 30.0, 35.0, 0.0, 0.0, 6.0);
+    }
+
+    private static final double LOOP_PERIOD_SECONDS = 0.02;
+    private static final double TAG_SIZE_METERS = 0.1651; // 6.5 in
+    private static final double CAPTURE_LATENCY_FRACTION = 0.3; // Share of latency reported as "cl"
+    private static final double SIMULATED_AMBIGUITY = 0.1;
+
+    private final Supplier<Pose2d> poseSupplier;
+    private final Transform3d robotToCamera;
+    private final CameraModel model;
+    private final AprilTagFieldLayout layout;
+    private final Random random;
+    private final double tanHalfHorizontalFov;
+    private final double tanHalfVerticalFov;
+
+    // Frames captured but not yet "processed", oldest first
+    private final ArrayDeque<SimFrame> delayLine = new ArrayDeque<>();
+
+    // Camera clock, advanced by one robot period per update
+    private double cameraTime = 0.0;
+    private double nextCaptureTime = 0.0;
+    private double heartbeat = 0.0;
+
+    // Pipeline overrides, so predictive cropping can be exercised in simulation
+    private double cropXMin = -1.0;
+    private double cropXMax = 1.0;
+    private double cropYMin = -1.0;
+    private double cropYMax = 1.0;
+    private int[] idFilter = new int[0];
+
+    // Latest delivered frame
+    private SimFrame latest = null;
+
+    /** Capture-time results for one frame. */
+    private static record SimFrame(
+        double captureTime,
+        boolean hasTargets,
+        double txDegrees,
+        double tyDegrees,
+        double area,
+        int tagId,
+        double[] botpose,
+        Pose2d robotPose,
+        int tagCount,
+        double averageTagDistance,
+        double heartbeat) {}
+
+    public VisionIOSim(Supplier<Pose2d> poseSupplier, Transform3d robotToCamera) {
+        this(poseSupplier, robotToCamera, CameraModel.LIMELIGHT_3, 0);
+    }
+
+    /**
+     * @param poseSupplier  Simulated robot pose (blue origin), treated as ground truth
+     * @param robotToCamera Camera mounting relative to robot center
+     * @param model         Camera optics, latency and noise
+     * @param seed          Seed for the noise generator
+     */
+    public VisionIOSim(Supplier<Pose2d> poseSupplier, Transform3d robotToCamera, CameraModel model, long seed) {
+        this.poseSupplier = poseSupplier;
+        this.robotToCamera = robotToCamera;
+        this.model = model;
+        this.random = new Random(seed);
+        layout = AprilTagFieldLayout.loadField(AprilTagFields.kDefaultField);
+        tanHalfHorizontalFov = Math.tan(Math.toRadians(model.horizontalFovDegrees() / 2.0));
+        tanHalfVerticalFov = Math.tan(Math.toRadians(model.verticalFovDegrees() / 2.0));
+    }
+
+    @Override
+    public void updateInputs(VisionIOInputs inputs) {
+        cameraTime += LOOP_PERIOD_SECONDS;
+
+        // Capture every frame that would have started since the last update
+        Pose2d robotPose = poseSupplier.get();
+        while (nextCaptureTime <= cameraTime) {
+            delayLine.addLast(capture(robotPose, nextCaptureTime));
+            nextCaptureTime += 1.0 / model.framesPerSecond();
+        }
+
+        // Deliver every frame whose processing has finished
+        double latencySeconds = model.latencyMs() / 1000.0;
+        double now = Timer.getFPGATimestamp();
+        List<TargetObservation> targetObservations = new ArrayList<>();
+        List<PoseObservation> poseObservations = new ArrayList<>();
+        List<FrameTiming> frameTimings = new ArrayList<>();
+        while (!delayLine.isEmpty() && delayLine.peekFirst().captureTime() + latencySeconds <= cameraTime) {
+            SimFrame frame = delayLine.removeFirst();
+            latest = frame;
+
+            // Express capture time in the robot's time base, preserving the frame's age
+            double timestamp = now - (cameraTime - frame.captureTime());
+            frameTimings.add(new FrameTiming(
+                timestamp + latencySeconds,
+                model.latencyMs() * (1.0 - CAPTURE_LATENCY_FRACTION),
+                model.latencyMs() * CAPTURE_LATENCY_FRACTION,
+                0.0,
+                frame.heartbeat()));
+            if (frame.hasTargets()) {
+                targetObservations.add(new TargetObservation(
+                    timestamp,
+                    Math.toRadians(frame.txDegrees()),
+                    Math.toRadians(frame.tyDegrees()),
+                    frame.tagId()));
+                poseObservations.add(new PoseObservation(
+                    timestamp,
+                    frame.robotPose(),
+                    frame.tagCount(),
+                    frame.averageTagDistance(),
+                    SIMULATED_AMBIGUITY));
+            }
+        }
+
+        inputs.targetObservations = targetObservations.toArray(new TargetObservation[0]);
+        inputs.poseObservations = poseObservations.toArray(new PoseObservation[0]);
+        inputs.frameTimings = frameTimings.toArray(new FrameTiming[0]);
+        inputs.droppedFrames = 0;
+        inputs.pipelineLatency = model.latencyMs() * (1.0 - CAPTURE_LATENCY_FRACTION);
+        inputs.captureLatency = model.latencyMs() * CAPTURE_LATENCY_FRACTION;
+
+        if (latest == null) {
+            return;
+        }
+        inputs.lastTimeStamp = now - (cameraTime - latest.captureTime());
+        inputs.heartbeat = latest.heartbeat();
+        inputs.hasTargets = latest.hasTargets();
+        inputs.horizontalAngleRadians = Math.toRadians(latest.txDegrees());
+        inputs.verticalAngleRadians = Math.toRadians(latest.tyDegrees());
+        inputs.area = latest.area();
+        inputs.tagId = latest.tagId();
+        inputs.botpose = latest.botpose().clone();
+    }
+
+    /** Projects the field's tags into the camera as it sits at {@code robotPose}. */
+    private SimFrame capture(Pose2d robotPose, double captureTime) {
+        heartbeat++;
+        Pose3d cameraPose = new Pose3d(robotPose).transformBy(robotToCamera);
+
+        int bestId = -1;
+        double bestArea = 0.0;
+        double bestTx = 0.0;
+        double bestTy = 0.0;
+        int tagCount = 0;
+        double totalDistance = 0.0;
+
+        for (AprilTag tag : layout.getTags()) {
+            if (!passesIdFilter(tag.ID)) {
+                continue;
+            }
+
+            // Camera frame: x forward, y left, z up
+            Translation3d relative = tag.pose.relativeTo(cameraPose).getTranslation();
+            double forward = relative.getX();
+            double distance = relative.getNorm();
+            if (forward <= 0.0 || distance > model.maxDistanceMeters()) {
+                continue;
+            }
+
+            // Tags seen from behind are not detected
+            double facing = tag.pose.getRotation().toRotation2d()
+                .minus(cameraPose.getRotation().toRotation2d()).getCos();
+            if (facing > 0.0) {
+                continue;
+            }
+
+            double imageX = (-relative.getY() / forward) / tanHalfHorizontalFov;
+            double imageY = (relative.getZ() / forward) / tanHalfVerticalFov;
+            if (imageX < Math.max(-1.0, cropXMin) || imageX > Math.min(1.0, cropXMax)
+                    || imageY < Math.max(-1.0, cropYMin) || imageY > Math.min(1.0, cropYMax)) {
+                continue;
+            }
+
+            // Percent of the image covered, foreshortened by the viewing angle
+            double width = TAG_SIZE_METERS / forward / (2.0 * tanHalfHorizontalFov);
+            double height = TAG_SIZE_METERS / forward / (2.0 * tanHalfVerticalFov);
+            double area = width * height * Math.abs(facing) * 100.0;
+
+            tagCount++;
+            totalDistance += distance;
+            if (area > bestArea) {
+                bestArea = area;
+                bestId = tag.ID;
+                bestTx = Math.toDegrees(Math.atan2(-relative.getY(), forward));
+                bestTy = Math.toDegrees(Math.atan2(relative.getZ(), forward));
+            }
+        }
+
+        if (tagCount == 0) {
+            return new SimFrame(captureTime, false, 0.0, 0.0, 0.0, -1, new double[6], robotPose, 0, 0.0, heartbeat);
+        }
+
+        Pose2d measuredPose = new Pose2d(
+            robotPose.getX() + random.nextGaussian() * model.translationNoiseMeters(),
+            robotPose.getY() + random.nextGaussian() * model.translationNoiseMeters(),
+            robotPose.getRotation());
+
+        // botpose is field-centered, like the real Limelight's "botpose" entry
+        Rotation2d yaw = measuredPose.getRotation();
+        double[] botpose = {
+            measuredPose.getX() - layout.getFieldLength() / 2.0,
+            measuredPose.getY() - layout.getFieldWidth() / 2.0,
+            0.0, 0.0, 0.0, yaw.getDegrees()
+        };
+
+        return new SimFrame(
+            captureTime,
+            true,
+            bestTx + random.nextGaussian() * model.angleNoiseDegrees(),
+            bestTy + random.nextGaussian() * model.angleNoiseDegrees(),
+            bestArea,
+            bestId,
+            botpose,
+            measuredPose,
+            tagCount,
+            totalDistance / tagCount,
+            heartbeat);
+    }
+
+    private boolean passesIdFilter(int id) {
+        if (idFilter.length == 0) {
+            return true;
+        }
+        for (int allowed : idFilter) {
+            if (allowed == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void setCropWindow(double xMin, double xMax, double yMin, double yMax) {
+        cropXMin = xMin;
+        cropXMax = xMax;
+        cropYMin = yMin;
+        cropYMax = yMax;
+    }
+
+    @Override
+    public void setFiducialIdFilter(int[] ids) {
+        idFilter = ids.clone();
+    }
+
+    @Override
+    public Transform3d getRobotToCamera() {
+        return robotToCamera;
+    }
+}
@@ -0,0 +1,194 @@
+package frc.robot.subsystems.vision;
+
+import java.util.Arrays;
+
+import org.littletonrobotics.junction.Logger;
+
+import edu.wpi.first.wpilibj.Alert;
+import edu.wpi.first.wpilibj.Alert.AlertType;
+import frc.robot.subsystems.vision.VisionIO.FrameTiming;
+import frc.robot.subsystems.vision.VisionIO.VisionIOInputs;
+
+/**
+ * Health and latency metrics for one camera.
+ * <p>
+ * Fed from the camera's inputs each loop, so the same numbers come out of replay. Keeps
+ * rolling windows of pipeline latency, capture latency, NetworkTables transport delay and
+ * instantaneous frame rate, and publishes their p50/p95/p99 to AdvantageKit a few times a
+ * second. A camera is reported stalled when no frame has arrived for a while, and frozen
+ * when frames keep arriving but the Limelight heartbeat has stopped advancing.
+ */
+public class VisionMetrics {
+    private static final int WINDOW_SIZE = 256; // ~3 s of frames at 90 FPS
+    private static final int PUBLISH_PERIOD_LOOPS = 10; // Sorting every loop is wasted work
+
+    // Budgets that raise alerts
+    private static final double TOTAL_LATENCY_BUDGET_MS = 60.0; // p95 of capture + pipeline + transport
+    private static final double MIN_FPS = 15.0; // p50
+    private static final double STALL_TIMEOUT_SECONDS = 0.5;
+    private static final int FROZEN_FRAME_LIMIT = 5; // Consecutive frames with the same heartbeat
+
+    private final String prefix;
+
+    private final RollingWindow pipelineLatency = new RollingWindow(WINDOW_SIZE);
+    private final RollingWindow captureLatency = new RollingWindow(WINDOW_SIZE);
+    private final RollingWindow transportDelay = new RollingWindow(WINDOW_SIZE);
+    private final RollingWindow totalLatency = new RollingWindow(WINDOW_SIZE);
+    private final RollingWindow fps = new RollingWindow(WINDOW_SIZE);
+    private final double[] sortScratch = new double[WINDOW_SIZE];
+    private double lastP50 = 0.0;
+    private double lastP95 = 0.0;
+
+    private final Alert stalledAlert;
+    private final Alert frozenAlert;
+    private final Alert latencyAlert;
+    private final Alert fpsAlert;
+
+    private double lastReceiveTimestamp = Double.NaN;
+    private double lastHeartbeat = Double.NaN;
+    private int repeatedHeartbeats = 0;
+    private long frozenFrames = 0;
+    private long totalFrames = 0;
+    private int loopsSincePublish = 0;
+    private boolean stalled = true;
+    private boolean frozen = false;
+
+    /**
+     * @param name Camera name used in log keys and alert text
+     */
+    public VisionMetrics(String name) {
+        prefix = "Vision/" + name + "/Metrics/";
+        stalledAlert = new Alert("Vision", name + " has not sent a frame recently", AlertType.kError);
+        frozenAlert = new Alert("Vision", name + " heartbeat stopped; frames are frozen", AlertType.kError);
+        latencyAlert = new Alert("Vision", name + " latency is over budget", AlertType.kWarning);
+        fpsAlert = new Alert("Vision", name + " frame rate is low", AlertType.kWarning);
+    }
+
+    /**
+     * Records every frame received this loop and publishes metrics.
+     *
+     * @param inputs    The camera's inputs after this loop's update
+     * @param timestamp Current FPGA time in seconds
+     */
+    public void update(VisionIOInputs inputs, double timestamp) {
+        for (FrameTiming timing : inputs.frameTimings) {
+            record(timing);
+        }
+
+        stalled = Double.isNaN(lastReceiveTimestamp)
+            || timestamp - lastReceiveTimestamp > STALL_TIMEOUT_SECONDS;
+        frozen = repeatedHeartbeats >= FROZEN_FRAME_LIMIT;
+
+        if (++loopsSincePublish >= PUBLISH_PERIOD_LOOPS) {
+            loopsSincePublish = 0;
+            publish(timestamp);
+        }
+    }
+
+    private void record(FrameTiming timing) {
+        totalFrames++;
+        pipelineLatency.add(timing.pipelineLatencyMs());
+        captureLatency.add(timing.captureLatencyMs());
+        transportDelay.add(timing.transportDelayMs());
+        totalLatency.add(timing.pipelineLatencyMs() + timing.captureLatencyMs() + timing.transportDelayMs());
+
+        if (!Double.isNaN(lastReceiveTimestamp)) {
+            double period = timing.receiveTimestamp() - lastReceiveTimestamp;
+            if (period > 0.0) {
+                fps.add(1.0 / period);
+            }
+        }
+        lastReceiveTimestamp = timing.receiveTimestamp();
+
+        // The Limelight increments its heartbeat once per processed frame
+        if (timing.heartbeat() == lastHeartbeat) {
+            repeatedHeartbeats++;
+            frozenFrames++;
+        } else {
+            repeatedHeartbeats = 0;
+        }
+        lastHeartbeat = timing.heartbeat();
+    }
+
+    private void publish(double timestamp) {
+        publishWindow("PipelineLatencyMs", pipelineLatency);
+        publishWindow("CaptureLatencyMs", captureLatency);
+        publishWindow("TransportDelayMs", transportDelay);
+        publishWindow("TotalLatencyMs", totalLatency);
+        double totalP95 = lastP95;
+        publishWindow("FPS", fps);
+        double fpsP50 = lastP50;
+
+        Logger.recordOutput(prefix + "Stalled", stalled);
+        Logger.recordOutput(prefix + "Frozen", frozen);
+        Logger.recordOutput(prefix + "FrozenFrames", frozenFrames);
+        Logger.recordOutput(prefix + "TotalFrames", totalFrames);
+        Logger.recordOutput(prefix + "SecondsSinceFrame",
+            Double.isNaN(lastReceiveTimestamp) ? -1.0 : timestamp - lastReceiveTimestamp);
+
+        stalledAlert.set(stalled);
+        frozenAlert.set(frozen);
+        latencyAlert.set(!stalled && totalP95 > TOTAL_LATENCY_BUDGET_MS);
+        fpsAlert.set(!stalled && fps.size() > 0 && fpsP50 < MIN_FPS);
+    }
+
+    /** Logs p50/p95/p99 of a window and leaves p50/p95 in {@code lastP50}/{@code lastP95}. */
+    private void publishWindow(String key, RollingWindow window) {
+        int count = window.copyTo(sortScratch);
+        if (count == 0) {
+            lastP50 = 0.0;
+            lastP95 = 0.0;
+            return;
+        }
+        Arrays.sort(sortScratch, 0, count);
+        lastP50 = percentile(count, 0.50);
+        lastP95 = percentile(count, 0.95);
+        Logger.recordOutput(prefix + key + "/P50", lastP50);
+        Logger.recordOutput(prefix + key + "/P95", lastP95);
+        Logger.recordOutput(prefix + key + "/P99", percentile(count, 0.99));
+        Logger.recordOutput(prefix + key + "/Max", sortScratch[count - 1]);
+    }
+
+    // Nearest-rank percentile of the sorted scratch
+    private double percentile(int count, double fraction) {
+        int index = (int) Math.ceil(fraction * count) - 1;
+        return sortScratch[Math.max(0, Math.min(count - 1, index))];
+    }
+
+    /** True if no frame has arrived within the stall timeout. */
+    public boolean isStalled() {
+        return stalled;
+    }
+
+    /** True if frames are arriving but the Limelight heartbeat is not advancing. */
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /** Fixed-size ring of the most recent samples. */
+    private static final class RollingWindow {
+        private final double[] samples;
+        private int next = 0;
+        private int size = 0;
+
+        RollingWindow(int capacity) {
+            samples = new double[capacity];
+        }
+
+        void add(double value) {
+            samples[next] = value;
+            next = (next + 1) % samples.length;
+            size = Math.min(size + 1, samples.length);
+        }
+
+        int size() {
+            return size;
+        }
+
+        /** Copies the samples (in no particular order) into {@code out}, returning how many. */
+        int copyTo(double[] out) {
+            System.arraycopy(samples, 0, out, 0, size);
+            return size;
+        }
+    }
+}
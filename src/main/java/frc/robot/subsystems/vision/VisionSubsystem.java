@@ -1,49 +1,124 @@
 package frc.robot.subsystems.vision;
 
-import edu.wpi.first.networktables.NetworkTable;
-import edu.wpi.first.networktables.NetworkTableEntry;
-import edu.wpi.first.networktables.NetworkTableInstance;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.littletonrobotics.junction.AutoLog;
+import org.littletonrobotics.junction.Logger;
+
+import com.ctre.phoenix6.Utils;
+
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.apriltag.AprilTagFields;
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+import edu.wpi.first.math.util.Units;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.subsystems.CommandSwerveDrivetrain;
+import frc.robot.subsystems.led.LEDConfig;
 import frc.robot.subsystems.led.LEDState;
 import frc.robot.subsystems.led.LEDSubsystem;
-import frc.robot.subsystems.vision.VisionState;
+import frc.robot.telemetry.LoopProfiler;
+import frc.robot.subsystems.vision.VisionIO.PoseObservation;
+import frc.robot.subsystems.vision.VisionIO.VisionIOInputs;
 
 
 public class VisionSubsystem extends SubsystemBase {
-    private final String tableName;
-    private final NetworkTable limelightTable;
+    /** Drivetrain state the vision logic reads, logged so replay sees what the robot saw. */
+    @AutoLog
+    public static class DriveStateInputs {
+        public Pose2d pose = new Pose2d();
+        public ChassisSpeeds speeds = new ChassisSpeeds();
+        // Gyro turn since the primary camera's latest capture, for latency compensation
+        public double headingChangeSinceCaptureDegrees = 0.0;
+    }
+
     private final CommandSwerveDrivetrain drivetrain;
     private final LEDSubsystem leds;
-    
-    // NetworkTable entries
-    private final NetworkTableEntry tv; // Whether there are valid targets
-    private final NetworkTableEntry tx; // Horizontal offset
-    private final NetworkTableEntry ty; // Vertical offset
-    private final NetworkTableEntry ta; // Target area
-    private final NetworkTableEntry tid; // AprilTag ID
-    
+    private final LoopProfiler profiler = LoopProfiler.getInstance();
+    private final int profilerSection = profiler.register("VisionSubsystem");
+    private final int flushSection = profiler.registerNested("VisionSubsystem/Flush");
+
+    // One IO and one set of inputs per camera; camera 0 is used for targeting
+    private final VisionIO[] cameras;
+    private final VisionIOInputsAutoLogged[] inputs;
+    private final String[] inputKeys;
+    private final String[] logPrefixes;
+
+    // Predictive cropping, one per camera with a known mounting (null otherwise)
+    private final LimelightCropPredictor[] cropPredictors;
+
+    // Latency and health metrics, one per camera
+    private final VisionMetrics[] metrics;
+
+    private final DriveStateInputsAutoLogged driveInputs = new DriveStateInputsAutoLogged();
+
     // Vision processing constants
     private static final double TARGET_LOCK_THRESHOLD = 2.0; // Degrees
     private static final double VALID_TARGET_AREA = 0.1; // % of image
-    
+    private static final int PRIMARY_CAMERA = 0;
+
+    // LED layer showing the targeting state
+    private static final String LED_LAYER = "Vision";
+    private static final int LED_LAYER_PRIORITY = 10;
+    private static final double LED_LAYER_TIMEOUT = 0.25; // seconds
+
+    // Pose estimation constants
+    private static final double MAX_YAW_RATE_DEG_PER_SEC = 720.0; // MegaTag2 is unreliable while spinning fast
+    private static final double MAX_TAG_DISTANCE = 6.0; // meters
+    private static final double MAX_AVERAGE_AMBIGUITY = 0.7;
+    private static final double XY_STD_DEV_COEFFICIENT = 0.3; // meters, for one tag at 1 m
+    private static final double THETA_STD_DEV = 9999999.0; // MegaTag2 heading comes from our own gyro
+
+    private static final Comparator<PoseObservation> BY_TIMESTAMP =
+        Comparator.comparingDouble(PoseObservation::timestamp);
+
     private VisionState currentState = VisionState.NO_TARGET;
     private boolean ledsEnabled = false;
+    private boolean poseEstimationEnabled = true;
+    private double lastFusedTimestamp = 0.0;
+    private int lastFusedTagCount = 0;
+    private int fusedThisLoop = 0;
+    private double lastXYStdDev = 0.0;
+    private boolean adaptiveCroppingEnabled = false;
+
+    // Pose observations from every camera, merged and sorted each loop
+    private final List<PoseObservation> mergedObservations = new ArrayList<>();
 
-    public VisionSubsystem(String tableName, CommandSwerveDrivetrain drivetrain, LEDSubsystem leds) {
-        this.tableName = tableName;
+    public VisionSubsystem(CommandSwerveDrivetrain drivetrain, LEDSubsystem leds, VisionIO... cameras) {
+        if (cameras.length == 0) {
+            throw new IllegalArgumentException("VisionSubsystem needs at least one camera");
+        }
         this.drivetrain = drivetrain;
         this.leds = leds;
-        
-        // Initialize NetworkTable
-        limelightTable = NetworkTableInstance.getDefault().getTable(tableName);
-        tv = limelightTable.getEntry("tv");
-        tx = limelightTable.getEntry("tx");
-        ty = limelightTable.getEntry("ty");
-        ta = limelightTable.getEntry("ta");
-        tid = limelightTable.getEntry("tid");
-        
+        this.cameras = cameras;
+
+        inputs = new VisionIOInputsAutoLogged[cameras.length];
+        inputKeys = new String[cameras.length];
+        logPrefixes = new String[cameras.length];
+        metrics = new VisionMetrics[cameras.length];
+        for (int i = 0; i < cameras.length; i++) {
+            inputs[i] = new VisionIOInputsAutoLogged();
+            inputKeys[i] = "Vision/Camera" + i;
+            logPrefixes[i] = inputKeys[i] + "/";
+            metrics[i] = new VisionMetrics("Camera" + i);
+        }
+
+        AprilTagFieldLayout fieldLayout = AprilTagFieldLayout.loadField(AprilTagFields.kDefaultField);
+        cropPredictors = new LimelightCropPredictor[cameras.length];
+        for (int i = 0; i < cameras.length; i++) {
+            if (cameras[i].getRobotToCamera() != null) {
+                cropPredictors[i] = new LimelightCropPredictor(cameras[i], cameras[i].getRobotToCamera(), fieldLayout);
+            }
+        }
+
         // Configure Limelight
         configureLimelight();
         // setLeds(false);
@@ -52,7 +127,9 @@ public class VisionSubsystem extends SubsystemBase {
 
     private void configureLimelight() {
         // Set to AprilTag pipeline
-        limelightTable.getEntry("pipeline").setNumber(0);
+        for (VisionIO camera : cameras) {
+            camera.setPipeline(0);
+        }
         setLeds(true); // Turn off LEDs if false
         ledsEnabled = true;
 
@@ -62,17 +139,41 @@ public class VisionSubsystem extends SubsystemBase {
 
     @Override
     public void periodic() {
+        profiler.begin(profilerSection);
+        // Each camera decodes its own frames; here we only collect what they queued.
+        // Everything below reads only the logged camera and drivetrain inputs, so replay
+        // reproduces this subsystem's decisions. What the drivetrain then does with the
+        // fused measurements is not replayed.
+        double now = Timer.getFPGATimestamp();
+        for (int i = 0; i < cameras.length; i++) {
+            cameras[i].updateInputs(inputs[i]);
+            Logger.processInputs(inputKeys[i], inputs[i]);
+            metrics[i].update(inputs[i], now);
+        }
+        updateDriveInputs();
+
         updateVisionState();
+        updatePoseEstimate();
+        updateCropping();
         updateLEDs();
         logData();
+        profiler.end(profilerSection);
+    }
+
+    private void updateDriveInputs() {
+        var driveState = drivetrain.getState();
+        driveInputs.pose = driveState.Pose;
+        driveInputs.speeds = driveState.Speeds;
+        driveInputs.headingChangeSinceCaptureDegrees =
+            drivetrain.getHeadingChangeSince(inputs[PRIMARY_CAMERA].lastTimeStamp);
+        Logger.processInputs("Vision/DriveState", driveInputs);
     }
 
     private void updateVisionState() {
-        boolean hasTarget = tv.getDouble(0.0) > 0.5;
-        double horizontalOffset = tx.getDouble(0.0);
-        double area = ta.getDouble(0.0);
+        VisionIOInputs primary = inputs[PRIMARY_CAMERA];
+        double horizontalOffset = Units.radiansToDegrees(primary.horizontalAngleRadians);
 
-        if (!hasTarget || area < VALID_TARGET_AREA) {
+        if (!primary.hasTargets || primary.area < VALID_TARGET_AREA) {
             currentState = VisionState.NO_TARGET;
         } else if (Math.abs(horizontalOffset) <= TARGET_LOCK_THRESHOLD) {
             currentState = VisionState.TARGET_LOCKED;
@@ -81,34 +182,152 @@ public class VisionSubsystem extends SubsystemBase {
         }
     }
 
+    /**
+     * Fuses MegaTag2 estimates from every camera into the drivetrain's pose estimator.
+     * <p>
+     * MegaTag2 solves for position using the robot heading we send it, so the heading is
+     * published every loop before the estimate is read. Observations from all cameras are
+     * merged and applied oldest first at their capture timestamps, letting the Phoenix
+     * estimator replay odometry since then.
+     */
+    private void updatePoseEstimate() {
+        double yawRateDegPerSec = Units.radiansToDegrees(driveInputs.speeds.omegaRadiansPerSecond);
+        double yawDegrees = driveInputs.pose.getRotation().getDegrees();
+        for (VisionIO camera : cameras) {
+            camera.setRobotOrientation(yawDegrees, yawRateDegPerSec);
+        }
+        profiler.begin(flushSection);
+        LimelightHelpers.Flush(); // One flush for every camera's orientation
+        profiler.end(flushSection);
+
+        fusedThisLoop = 0;
+        if (!poseEstimationEnabled || Math.abs(yawRateDegPerSec) > MAX_YAW_RATE_DEG_PER_SEC) {
+            return;
+        }
+
+        mergedObservations.clear();
+        for (VisionIOInputs cameraInputs : inputs) {
+            for (PoseObservation observation : cameraInputs.poseObservations) {
+                mergedObservations.add(observation);
+            }
+        }
+        mergedObservations.sort(BY_TIMESTAMP);
+
+        for (int i = 0; i < mergedObservations.size(); i++) {
+            PoseObservation observation = mergedObservations.get(i);
+            if (observation.tagCount() == 0 || observation.averageTagDistance() > MAX_TAG_DISTANCE
+                    || observation.averageAmbiguity() > MAX_AVERAGE_AMBIGUITY) {
+                continue;
+            }
+
+            drivetrain.addVisionMeasurement(
+                observation.pose(),
+                Utils.fpgaToCurrentTime(observation.timestamp()),
+                getStdDevs(observation));
+            lastFusedTimestamp = observation.timestamp();
+            lastFusedTagCount = observation.tagCount();
+            fusedThisLoop++;
+        }
+    }
+
+    /**
+     * While adaptive cropping is on, points each camera's crop window and ID filter at
+     * where the fused pose says the tags are. Only the primary camera's tracked tag is
+     * singled out; other cameras frame every tag they should see.
+     */
+    private void updateCropping() {
+        if (!adaptiveCroppingEnabled) {
+            return;
+        }
+
+        for (int i = 0; i < cropPredictors.length; i++) {
+            if (cropPredictors[i] != null) {
+                int trackedTagId = i == PRIMARY_CAMERA && inputs[i].hasTargets ? inputs[i].tagId : -1;
+                cropPredictors[i].recordFrames(inputs[i].frameTimings.length, inputs[i].targetObservations.length > 0);
+                cropPredictors[i].update(driveInputs.pose, driveInputs.speeds, trackedTagId);
+            }
+        }
+    }
+
+    private Matrix<N3, N1> getStdDevs(PoseObservation observation) {
+        double xyStdDev = getXYStdDev(observation);
+        lastXYStdDev = xyStdDev;
+        return VecBuilder.fill(xyStdDev, xyStdDev, THETA_STD_DEV);
+    }
+
+    /**
+     * Scales trust in a measurement with distance squared, divides it among the visible
+     * tags, and inflates it for ambiguous single-tag solves.
+     */
+    static double getXYStdDev(PoseObservation observation) {
+        return XY_STD_DEV_COEFFICIENT
+            * Math.pow(Math.max(observation.averageTagDistance(), 1.0), 2)
+            / observation.tagCount()
+            * (1.0 + observation.averageAmbiguity());
+    }
+
     public void setLeds(boolean enabled) {
         ledsEnabled = enabled;
-        limelightTable.getEntry("ledMode").setNumber(enabled ? 3 : 1); // 3=force on, 1=force off
+        for (VisionIO camera : cameras) {
+            camera.setLeds(enabled);
+        }
     }
 
     private void updateLEDs() {
         if (leds != null) {
-            switch (currentState) {
-                case TARGET_LOCKED:
-                    leds.setState(LEDState.TARGET_LOCKED);
-                    break;
-                case TARGET_VISIBLE:
-                    leds.setState(LEDState.TARGET_VISIBLE);
-                    break;
-                case NO_TARGET:
-                default:
-                    leds.setState(LEDState.NO_TARGET);
-                    break;
+            LEDState color = ledLayerFor(currentState);
+            if (color != null) {
+                // Resubmitted every loop; the layer times out if vision stops updating it
+                leds.submitLayer(LED_LAYER, LEDConfig.Constants.ZONE_VISION, LED_LAYER_PRIORITY, color, LED_LAYER_TIMEOUT);
+            } else {
+                // Nothing to show, so the robot state and its animation get the whole strip
+                leds.clearLayer(LED_LAYER);
             }
         }
     }
 
+    /** Color of the LED layer for a targeting state, or null when no layer should be shown. */
+    static LEDState ledLayerFor(VisionState state) {
+        switch (state) {
+            case TARGET_LOCKED:
+                return LEDState.TARGET_LOCKED;
+            case TARGET_VISIBLE:
+                return LEDState.TARGET_VISIBLE;
+            case NO_TARGET:
+            default:
+                return null;
+        }
+    }
+
     private void logData() {
+        // Derived values, recomputed in replay for comparison against the original run
+        Logger.recordOutput("Vision/State", currentState);
+        Logger.recordOutput("Vision/HorizontalOffsetDegrees", getHorizontalOffset());
+        Logger.recordOutput("Vision/MT2/LastTimestamp", lastFusedTimestamp);
+        Logger.recordOutput("Vision/MT2/FusedThisLoop", fusedThisLoop);
+        Logger.recordOutput("Vision/MT2/XYStdDev", lastXYStdDev);
+
         SmartDashboard.putString("Vision/State", currentState.toString());
-        SmartDashboard.putNumber("Vision/TagID", tid.getDouble(0));
-        SmartDashboard.putNumber("Vision/TX", tx.getDouble(0));
-        SmartDashboard.putNumber("Vision/TY", ty.getDouble(0));
-        SmartDashboard.putNumber("Vision/TA", ta.getDouble(0));
+        SmartDashboard.putNumber("Vision/TagID", getTagId());
+        SmartDashboard.putNumber("Vision/TX", getHorizontalOffset());
+        SmartDashboard.putNumber("Vision/TY", getVerticalOffset());
+        SmartDashboard.putNumber("Vision/TA", inputs[PRIMARY_CAMERA].area);
+        SmartDashboard.putNumber("Vision/MT2/LastTimestamp", lastFusedTimestamp);
+        SmartDashboard.putNumber("Vision/MT2/TagCount", lastFusedTagCount);
+        SmartDashboard.putNumber("Vision/MT2/XYStdDev", lastXYStdDev);
+        SmartDashboard.putNumber("Vision/MT2/FusedThisLoop", fusedThisLoop);
+        SmartDashboard.putBoolean("Vision/AdaptiveCropping", adaptiveCroppingEnabled);
+        for (int i = 0; i < cameras.length; i++) {
+            SmartDashboard.putBoolean(logPrefixes[i] + "HasTargets", inputs[i].hasTargets);
+            SmartDashboard.putNumber(logPrefixes[i] + "DroppedFrames", inputs[i].droppedFrames);
+            SmartDashboard.putNumber(logPrefixes[i] + "PoseMismatches", inputs[i].poseMismatches);
+            SmartDashboard.putNumber(logPrefixes[i] + "VisibleTags", inputs[i].visibleTagIds.length);
+            if (cropPredictors[i] != null) {
+                SmartDashboard.putNumber(logPrefixes[i] + "PredictedTags", cropPredictors[i].getVisibleCount());
+                SmartDashboard.putNumber(logPrefixes[i] + "CropWrites", cropPredictors[i].getConfigurationWrites());
+                SmartDashboard.putNumber(logPrefixes[i] + "CropRecoveries", cropPredictors[i].getRecoveries());
+            }
+        }
     }
 
     // Getter methods for use in commands
@@ -120,16 +339,75 @@ public class VisionSubsystem extends SubsystemBase {
         return currentState != VisionState.NO_TARGET;
     }
 
+    /** Horizontal offset to the primary camera's target, in degrees. */
     public double getHorizontalOffset() {
-        return tx.getDouble(0.0);
+        return Units.radiansToDegrees(inputs[PRIMARY_CAMERA].horizontalAngleRadians);
     }
 
+    /** Vertical offset to the primary camera's target, in degrees. */
     public double getVerticalOffset() {
-        return ty.getDouble(0.0);
+        return Units.radiansToDegrees(inputs[PRIMARY_CAMERA].verticalAngleRadians);
+    }
+
+    /**
+     * Horizontal offset to the primary camera's target as it would be seen now rather than
+     * when the frame was captured, in degrees. The frame is 30-60 ms old, so the heading
+     * change since capture is added back in; turning counterclockwise moves the target
+     * right (positive). Computed from logged inputs, so replay gives the same value.
+     */
+    public double getCompensatedHorizontalOffset() {
+        return getHorizontalOffset() + driveInputs.headingChangeSinceCaptureDegrees;
     }
 
     public int getTagId() {
-        return (int) tid.getDouble(0);
+        return inputs[PRIMARY_CAMERA].tagId;
+    }
+
+    /** Capture timestamp (FPGA seconds) of the primary camera's latest frame. */
+    public double getLatestTimestamp() {
+        return inputs[PRIMARY_CAMERA].lastTimeStamp;
+    }
+
+    /** True if any camera has stopped delivering fresh frames. */
+    public boolean isAnyCameraUnhealthy() {
+        for (VisionMetrics cameraMetrics : metrics) {
+            if (cameraMetrics.isStalled() || cameraMetrics.isFrozen()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int getCameraCount() {
+        return cameras.length;
+    }
+
+    /** Enables or disables fusing MegaTag2 estimates into the drivetrain pose. */
+    public void setPoseEstimationEnabled(boolean enabled) {
+        poseEstimationEnabled = enabled;
+    }
+
+    public boolean isPoseEstimationEnabled() {
+        return poseEstimationEnabled;
+    }
+
+    /**
+     * Enables predictive cropping, which narrows each camera's search area to the tags
+     * the fused pose says are in view. Disabling restores the full image.
+     */
+    public void setAdaptiveCroppingEnabled(boolean enabled) {
+        if (adaptiveCroppingEnabled && !enabled) {
+            for (LimelightCropPredictor predictor : cropPredictors) {
+                if (predictor != null) {
+                    predictor.reset();
+                }
+            }
+        }
+        adaptiveCroppingEnabled = enabled;
+    }
+
+    public boolean isAdaptiveCroppingEnabled() {
+        return adaptiveCroppingEnabled;
     }
 
     public void resetPoseEstimate() {
@@ -146,4 +424,4 @@ public class VisionSubsystem extends SubsystemBase {
         // TODO Auto-generated method stub
         throw new UnsupportedOperationException("Unimplemented method 'enable'");
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,121 @@
+package frc.robot.telemetry;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Measures how much the main robot thread allocates each loop and how much time the
+ * garbage collector takes.
+ * <p>
+ * Allocation comes from HotSpot's per-thread allocation counter
+ * ({@code com.sun.management.ThreadMXBean}), which is cheap enough to read around
+ * individual sections; {@link LoopProfiler} uses it to attribute bytes to subsystems
+ * and commands. GC counts and accumulated pause time come from the standard collector
+ * beans. Everything is logged through AdvantageKit next to the loop profiler's times.
+ */
+public class AllocationTracker {
+    private static AllocationTracker instance;
+
+    private final com.sun.management.ThreadMXBean threadBean;
+    private final boolean supported;
+    private final long mainThreadId;
+
+    private final GarbageCollectorMXBean[] collectors;
+    private final String[] collectorCountKeys;
+    private final String[] collectorTimeKeys;
+    private final long[] lastCollectionCounts;
+    private final long[] lastCollectionTimes;
+
+    private long lastMainThreadBytes = 0;
+    private long totalGcCount = 0;
+    private long totalGcTimeMs = 0;
+
+    /** Must be first called from the main robot thread. */
+    public static synchronized AllocationTracker getInstance() {
+        if (instance == null) {
+            instance = new AllocationTracker();
+        }
+        return instance;
+    }
+
+    private AllocationTracker() {
+        mainThreadId = Thread.currentThread().getId();
+
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean hotspotBean
+                && hotspotBean.isThreadAllocatedMemorySupported()) {
+            hotspotBean.setThreadAllocatedMemoryEnabled(true);
+            threadBean = hotspotBean;
+            supported = true;
+            lastMainThreadBytes = threadBean.getThreadAllocatedBytes(mainThreadId);
+        } else {
+            threadBean = null;
+            supported = false;
+        }
+
+        List<GarbageCollectorMXBean> gcBeans = ManagementFactory.getGarbageCollectorMXBeans();
+        collectors = gcBeans.toArray(new GarbageCollectorMXBean[0]);
+        collectorCountKeys = new String[collectors.length];
+        collectorTimeKeys = new String[collectors.length];
+        lastCollectionCounts = new long[collectors.length];
+        lastCollectionTimes = new long[collectors.length];
+        for (int i = 0; i < collectors.length; i++) {
+            String name = collectors[i].getName().replace(' ', '_');
+            collectorCountKeys[i] = "Memory/GC/" + name + "/CountPerLoop";
+            collectorTimeKeys[i] = "Memory/GC/" + name + "/TimeMsPerLoop";
+            lastCollectionCounts[i] = Math.max(0, collectors[i].getCollectionCount());
+            lastCollectionTimes[i] = Math.max(0, collectors[i].getCollectionTime());
+        }
+    }
+
+    /**
+     * Bytes allocated so far by the calling thread, or 0 if the JVM cannot tell us.
+     * Differences between two calls on the same thread give the bytes allocated between them.
+     */
+    public long getCurrentThreadAllocatedBytes() {
+        return supported ? threadBean.getCurrentThreadAllocatedBytes() : 0;
+    }
+
+    public boolean isSupported() {
+        return supported;
+    }
+
+    /** Call once per loop from the main thread; logs this loop's allocation and GC activity. */
+    public void update() {
+        if (supported) {
+            long bytes = threadBean.getThreadAllocatedBytes(mainThreadId);
+            Logger.recordOutput("Memory/MainThreadBytesPerLoop", bytes - lastMainThreadBytes);
+            lastMainThreadBytes = bytes;
+        }
+
+        long loopGcCount = 0;
+        long loopGcTimeMs = 0;
+        for (int i = 0; i < collectors.length; i++) {
+            // Collectors report -1 when they do not track a value
+            long count = Math.max(0, collectors[i].getCollectionCount());
+            long time = Math.max(0, collectors[i].getCollectionTime());
+            long countDelta = count - lastCollectionCounts[i];
+            long timeDelta = time - lastCollectionTimes[i];
+            lastCollectionCounts[i] = count;
+            lastCollectionTimes[i] = time;
+
+            Logger.recordOutput(collectorCountKeys[i], countDelta);
+            Logger.recordOutput(collectorTimeKeys[i], timeDelta);
+            loopGcCount += countDelta;
+            loopGcTimeMs += timeDelta;
+        }
+        totalGcCount += loopGcCount;
+        totalGcTimeMs += loopGcTimeMs;
+
+        Runtime runtime = Runtime.getRuntime();
+        Logger.recordOutput("Memory/GC/CountPerLoop", loopGcCount);
+        Logger.recordOutput("Memory/GC/TimeMsPerLoop", loopGcTimeMs);
+        Logger.recordOutput("Memory/GC/TotalCount", totalGcCount);
+        Logger.recordOutput("Memory/GC/TotalTimeMs", totalGcTimeMs);
+        Logger.recordOutput("Memory/HeapUsedBytes", runtime.totalMemory() - runtime.freeMemory());
+        Logger.recordOutput("Memory/HeapCommittedBytes", runtime.totalMemory());
+    }
+}
@@ -0,0 +1,163 @@
+package frc.robot.telemetry;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.littletonrobotics.junction.LogDataReceiver;
+import org.littletonrobotics.junction.LogTable;
+import org.littletonrobotics.junction.Logger;
+
+import edu.wpi.first.wpilibj.DataLogManager;
+import frc.robot.ThreadPolicy;
+
+/**
+ * Runs a slow data receiver, such as a {@code WPILOGWriter} on a USB stick, on its own thread.
+ * <p>
+ * AdvantageKit hands every cycle's table to all receivers from one thread, so a receiver
+ * that stalls on the disk holds up the others and eventually fills AdvantageKit's own
+ * queue. This wrapper puts each table, which AdvantageKit already gives every receiver its
+ * own copy of, into a bounded queue and returns immediately; a low-priority worker drains
+ * the queue into the real receiver and closes it once the queue is empty. When the queue is full the
+ * {@link DropPolicy} decides what happens, and the queue depth, drops and write times are
+ * logged by {@link #logMetrics()}.
+ */
+public class AsyncDataReceiver implements LogDataReceiver {
+    private static final long END_TIMEOUT_MS = 2000; // Longest end() waits for the queue to flush
+
+    /** What to do with a new table when the queue is full. */
+    public enum DropPolicy {
+        /** Discard the oldest queued table; the log keeps the newest data. */
+        DROP_OLDEST,
+        /** Discard the new table. */
+        DROP_NEWEST,
+        /** Wait for space. Only for replay, where nothing may be lost and nothing is timed. */
+        BLOCK
+    }
+
+    private final LogDataReceiver delegate;
+    private final DropPolicy dropPolicy;
+    private final ArrayBlockingQueue<LogTable> queue;
+    private final Thread worker;
+    private volatile boolean running = false;
+
+    private final String depthKey;
+    private final String droppedKey;
+    private final String writtenKey;
+    private final String lastWriteKey;
+    private final String maxWriteKey;
+
+    // Metrics
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong writtenCount = new AtomicLong();
+    private volatile double lastWriteMillis = 0.0;
+    private volatile double maxWriteMillis = 0.0;
+
+    /**
+     * @param name       Name used for the worker thread and log keys
+     * @param delegate   Receiver to write to
+     * @param capacity   Number of cycles that may be queued
+     * @param dropPolicy What to do when the queue is full
+     */
+    public AsyncDataReceiver(String name, LogDataReceiver delegate, int capacity, DropPolicy dropPolicy) {
+        this.delegate = delegate;
+        this.dropPolicy = dropPolicy;
+        queue = new ArrayBlockingQueue<>(capacity);
+        worker = new Thread(this::runWorker, "Log-" + name);
+        worker.setDaemon(true);
+
+        String prefix = "Logging/" + name + "/";
+        depthKey = prefix + "QueueDepth";
+        droppedKey = prefix + "Dropped";
+        writtenKey = prefix + "Written";
+        lastWriteKey = prefix + "LastWriteMs";
+        maxWriteKey = prefix + "MaxWriteMs";
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        worker.start();
+    }
+
+    @Override
+    public void end() {
+        running = false;
+        try {
+            // The worker closes the delegate after flushing what is queued
+            worker.join(END_TIMEOUT_MS);
+            if (worker.isAlive()) {
+                // Stuck on the disk; stop waiting so shutdown is not held up
+                DataLogManager.log("AsyncDataReceiver: " + worker.getName() + " did not flush within "
+                    + END_TIMEOUT_MS + " ms, " + queue.size() + " tables left");
+                worker.interrupt();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Runs on AdvantageKit's receiver thread
+    @Override
+    public void putTable(LogTable table) throws InterruptedException {
+        switch (dropPolicy) {
+            case BLOCK:
+                queue.put(table);
+                break;
+
+            case DROP_NEWEST:
+                if (!queue.offer(table)) {
+                    droppedCount.incrementAndGet();
+                }
+                break;
+
+            case DROP_OLDEST:
+            default:
+                if (!queue.offer(table)) {
+                    // Only this thread adds tables, so removing one always makes room
+                    if (queue.poll() != null) {
+                        droppedCount.incrementAndGet();
+                    }
+                    queue.offer(table);
+                }
+                break;
+        }
+    }
+
+    private void runWorker() {
+        ThreadPolicy.demoteCurrentThread();
+        delegate.start();
+        try {
+            while (running || !queue.isEmpty()) {
+                LogTable table = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (table == null) {
+                    continue;
+                }
+                long start = System.nanoTime();
+                delegate.putTable(table);
+                double millis = (System.nanoTime() - start) / 1e6;
+                lastWriteMillis = millis;
+                maxWriteMillis = Math.max(maxWriteMillis, millis);
+                writtenCount.incrementAndGet();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // Only this thread writes to the delegate, so only it may close it
+            delegate.end();
+        }
+    }
+
+    /** Call from the main loop to log the queue's health. */
+    public void logMetrics() {
+        Logger.recordOutput(depthKey, queue.size());
+        Logger.recordOutput(droppedKey, droppedCount.get());
+        Logger.recordOutput(writtenKey, writtenCount.get());
+        Logger.recordOutput(lastWriteKey, lastWriteMillis);
+        Logger.recordOutput(maxWriteKey, maxWriteMillis);
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+}
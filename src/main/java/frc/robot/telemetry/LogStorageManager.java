@@ -0,0 +1,261 @@
+package frc.robot.telemetry;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import com.ctre.phoenix6.SignalLogger;
+
+import org.littletonrobotics.junction.Logger;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.DriverStation.MatchType;
+import frc.robot.ThreadPolicy;
+
+/**
+ * Keeps the on-robot logs from filling the USB stick.
+ * <p>
+ * AdvantageKit's WPILOG files and Phoenix's hoot files both go under one directory on the
+ * stick. A low-priority background thread periodically gzips logs that are no longer
+ * being written and, when the directory is over its size cap or the stick is nearly full,
+ * deletes the oldest closed logs. The newest log of each kind is treated as open no matter
+ * how long ago it was written, so a logger that has gone quiet is never compressed or
+ * deleted out from under it. Phoenix's hoot log is restarted for every FMS match and
+ * closed when the match ends, so each match is in its own file that can be compressed as
+ * soon as the match is over. AdvantageKit already names its file after the match.
+ * <p>
+ * Compressed logs have to be unzipped before AdvantageScope or Tuner X can open them.
+ */
+public class LogStorageManager {
+    private static final long MAX_TOTAL_BYTES = 1_500_000_000L;
+    private static final long MIN_FREE_BYTES = 200_000_000L;
+    private static final long SCAN_PERIOD_MS = 30_000;
+    // A file untouched for this long is assumed closed
+    private static final long CLOSED_AGE_MS = 60_000;
+    private static final String COMPRESSED_EXTENSION = ".gz";
+    private static final String PARTIAL_EXTENSION = ".part";
+    private static final String WPILOG_EXTENSION = ".wpilog";
+    private static final String HOOT_EXTENSION = ".hoot";
+
+    private final File logDirectory;
+    private final Thread worker;
+
+    // Match rotation, main thread only
+    private MatchType lastMatchType = MatchType.None;
+    private int lastMatchNumber = 0;
+    private int lastReplayNumber = 0;
+    private boolean wasTeleopEnabled = false;
+    private int rotationCount = 0;
+
+    // Written by the worker, read by the main loop
+    private volatile long usableBytes = 0;
+    private volatile long totalLogBytes = 0;
+    private volatile long compressedCount = 0;
+    private volatile long deletedCount = 0;
+    private volatile String lastError = "";
+
+    /**
+     * @param logDirectory Directory both loggers write to, such as {@code /U/logs}
+     */
+    public LogStorageManager(File logDirectory) {
+        this.logDirectory = logDirectory;
+        // Must happen before anything calls SignalLogger.start()
+        SignalLogger.setPath(new File(logDirectory, "hoot").getPath());
+
+        worker = new Thread(this::runWorker, "LogStorage");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /** Call every loop from the main robot thread. */
+    public void update() {
+        updateMatchRotation();
+
+        Logger.recordOutput("LogStorage/UsableBytes", usableBytes);
+        Logger.recordOutput("LogStorage/TotalLogBytes", totalLogBytes);
+        Logger.recordOutput("LogStorage/CompressedFiles", compressedCount);
+        Logger.recordOutput("LogStorage/DeletedFiles", deletedCount);
+        Logger.recordOutput("LogStorage/Rotations", rotationCount);
+        Logger.recordOutput("LogStorage/LastError", lastError);
+    }
+
+    /* Starts a new hoot file when the FMS reports a new match, and stops logging when the match ends */
+    private void updateMatchRotation() {
+        if (!DriverStation.isFMSAttached()) {
+            return;
+        }
+
+        MatchType matchType = DriverStation.getMatchType();
+        int matchNumber = DriverStation.getMatchNumber();
+        int replayNumber = DriverStation.getReplayNumber();
+        if (matchType != lastMatchType || matchNumber != lastMatchNumber || replayNumber != lastReplayNumber) {
+            lastMatchType = matchType;
+            lastMatchNumber = matchNumber;
+            lastReplayNumber = replayNumber;
+            restartSignalLogger();
+        }
+
+        boolean teleopEnabled = DriverStation.isTeleopEnabled();
+        if (wasTeleopEnabled && DriverStation.isDisabled()) {
+            // Teleop is over; close this match's file so it can be compressed. The next
+            // match opens a new file when the FMS reports it.
+            SignalLogger.stop();
+        }
+        wasTeleopEnabled = teleopEnabled;
+    }
+
+    private void restartSignalLogger() {
+        SignalLogger.stop();
+        SignalLogger.start();
+        rotationCount++;
+    }
+
+    private void runWorker() {
+        ThreadPolicy.demoteCurrentThread();
+        // Nothing is compressing yet, so any partial output is left from an interrupted run
+        deletePartialFiles(logDirectory);
+        while (true) {
+            try {
+                maintain();
+            } catch (RuntimeException e) {
+                lastError = e.toString();
+            }
+            try {
+                Thread.sleep(SCAN_PERIOD_MS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /* Compresses closed logs, then deletes the oldest until under the caps */
+    private void maintain() {
+        if (!logDirectory.isDirectory()) {
+            usableBytes = logDirectory.getUsableSpace();
+            return;
+        }
+
+        List<File> files = new ArrayList<>();
+        collectFiles(logDirectory, files);
+        long now = System.currentTimeMillis();
+        File activeWpilog = newest(files, WPILOG_EXTENSION);
+        File activeHoot = newest(files, HOOT_EXTENSION);
+
+        for (int i = 0; i < files.size(); i++) {
+            File file = files.get(i);
+            if (file.equals(activeWpilog) || file.equals(activeHoot)) {
+                continue;
+            }
+            if (!isCompressed(file) && now - file.lastModified() > CLOSED_AGE_MS) {
+                File compressed = compress(file);
+                if (compressed != null) {
+                    files.set(i, compressed);
+                }
+            }
+        }
+
+        long total = 0;
+        for (File file : files) {
+            total += file.length();
+        }
+
+        files.sort(Comparator.comparingLong(File::lastModified));
+        for (File file : files) {
+            if (total <= MAX_TOTAL_BYTES && logDirectory.getUsableSpace() >= MIN_FREE_BYTES) {
+                break;
+            }
+            if (file.equals(activeWpilog) || file.equals(activeHoot)
+                    || now - file.lastModified() <= CLOSED_AGE_MS) {
+                continue; // Still being written
+            }
+            long length = file.length();
+            if (file.delete()) {
+                total -= length;
+                deletedCount++;
+            }
+        }
+
+        totalLogBytes = total;
+        usableBytes = logDirectory.getUsableSpace();
+    }
+
+    private static void collectFiles(File directory, List<File> out) {
+        File[] children = directory.listFiles();
+        if (children == null) {
+            return;
+        }
+        for (File child : children) {
+            if (child.isDirectory()) {
+                collectFiles(child, out);
+            } else if (child.getName().endsWith(WPILOG_EXTENSION) || child.getName().endsWith(HOOT_EXTENSION)
+                    || isCompressed(child)) {
+                out.add(child);
+            }
+        }
+    }
+
+    /* Most recently modified file with the extension, or null if there is none */
+    private static File newest(List<File> files, String extension) {
+        File newest = null;
+        for (File file : files) {
+            if (file.getName().endsWith(extension)
+                    && (newest == null || file.lastModified() > newest.lastModified())) {
+                newest = file;
+            }
+        }
+        return newest;
+    }
+
+    private void deletePartialFiles(File directory) {
+        File[] children = directory.listFiles();
+        if (children == null) {
+            return;
+        }
+        for (File child : children) {
+            if (child.isDirectory()) {
+                deletePartialFiles(child);
+            } else if (child.getName().endsWith(COMPRESSED_EXTENSION + PARTIAL_EXTENSION) && !child.delete()) {
+                lastError = "Could not delete " + child.getName();
+            }
+        }
+    }
+
+    private static boolean isCompressed(File file) {
+        return file.getName().endsWith(COMPRESSED_EXTENSION);
+    }
+
+    /* Gzips a file next to itself and deletes the original; returns the new file, or null on failure */
+    private File compress(File file) {
+        File partial = new File(file.getPath() + COMPRESSED_EXTENSION + PARTIAL_EXTENSION);
+        File compressed = new File(file.getPath() + COMPRESSED_EXTENSION);
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = new FileInputStream(file);
+                OutputStream out = new GZIPOutputStream(new FileOutputStream(partial), buffer.length)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                out.write(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            lastError = "Could not compress " + file.getName() + ": " + e.getMessage();
+            partial.delete();
+            return null;
+        }
+
+        if (!partial.renameTo(compressed)) {
+            lastError = "Could not rename " + partial.getName();
+            partial.delete();
+            return null;
+        }
+        compressed.setLastModified(file.lastModified());
+        file.delete();
+        compressedCount++;
+        return compressed;
+    }
+}
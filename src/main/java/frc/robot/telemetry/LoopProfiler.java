@@ -0,0 +1,230 @@
+package frc.robot.telemetry;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.littletonrobotics.junction.Logger;
+
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj.TimedRobot;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+
+/**
+ * Breaks each robot loop down into named sections timed with {@link System#nanoTime()}.
+ * <p>
+ * Subsystems time their own {@code periodic} with {@link #begin(int)}/{@link #end(int)}.
+ * Commands are timed through the {@link CommandScheduler} callbacks: the scheduler runs
+ * the callback right after each {@code initialize}, {@code execute} and {@code end}, so
+ * the time since the previous scheduler event is charged to that command. Every loop
+ * the per-section times, and a rolling maximum over the last one to two seconds, go to
+ * AdvantageKit; when a loop overruns, the section that took the longest is reported.
+ * <p>
+ * Sections are registered up front (or the first time a command name runs) and all timing
+ * state lives in preallocated arrays, so profiling a loop does not allocate. Bytes
+ * allocated by the main thread are attributed to sections the same way as time, using
+ * {@link AllocationTracker}.
+ */
+public class LoopProfiler {
+    private static final int MAX_SECTIONS = 64;
+    private static final double LOOP_BUDGET_MS = TimedRobot.kDefaultPeriod * 1000.0;
+    private static final int MAX_BLOCK_LOOPS = 50; // Rolling max covers 1-2 s at 50 Hz
+
+    private static LoopProfiler instance;
+
+    private final String[] names = new String[MAX_SECTIONS];
+    private final String[] loopKeys = new String[MAX_SECTIONS];
+    private final String[] maxKeys = new String[MAX_SECTIONS];
+    private final String[] bytesKeys = new String[MAX_SECTIONS];
+    private final long[] loopBytes = new long[MAX_SECTIONS];
+    private final long[] beginBytes = new long[MAX_SECTIONS];
+    private final boolean[] nested = new boolean[MAX_SECTIONS];
+    private final long[] loopNanos = new long[MAX_SECTIONS];
+    private final long[] beginNanos = new long[MAX_SECTIONS];
+    private final double[] currentBlockMaxMs = new double[MAX_SECTIONS];
+    private final double[] previousBlockMaxMs = new double[MAX_SECTIONS];
+    private int sectionCount = 0;
+
+    // Command sections by name, created the first time each name is seen. Commands are
+    // often rebuilt (a new applyRequest or auto routine instance each time it is bound or
+    // run), and instances sharing a name share sections and log keys.
+    private final Map<String, int[]> commandSections = new HashMap<>();
+    private static final int INITIALIZE = 0;
+    private static final int EXECUTE = 1;
+    private static final int END = 2;
+
+    private final AllocationTracker allocationTracker = AllocationTracker.getInstance();
+    private final int schedulerSection;
+    private final int unaccountedSection;
+    private long loopStartNanos = 0;
+    private long lastMarkNanos = 0;
+    private long lastMarkBytes = 0;
+    private int blockLoops = 0;
+    private long overrunCount = 0;
+    private String lastOverrunOffender = "";
+    private boolean reportedFull = false;
+
+    public static synchronized LoopProfiler getInstance() {
+        if (instance == null) {
+            instance = new LoopProfiler();
+        }
+        return instance;
+    }
+
+    private LoopProfiler() {
+        schedulerSection = register("Scheduler");
+        unaccountedSection = register("Unaccounted");
+
+        CommandScheduler scheduler = CommandScheduler.getInstance();
+        scheduler.onCommandInitialize(command -> mark(command, INITIALIZE));
+        scheduler.onCommandExecute(command -> mark(command, EXECUTE));
+        scheduler.onCommandFinish(command -> mark(command, END));
+        scheduler.onCommandInterrupt(command -> mark(command, END));
+    }
+
+    /**
+     * Registers a section. Call once, at construction, and keep the returned id.
+     *
+     * @param name Name used in log keys
+     * @return Section id for {@link #begin(int)} and {@link #end(int)}, or -1 if full
+     */
+    public int register(String name) {
+        return register(name, false);
+    }
+
+    /**
+     * Registers a section that may run inside another section, such as one step of a
+     * subsystem's periodic. Nested sections are reported but not counted twice when
+     * working out unaccounted time.
+     */
+    public int registerNested(String name) {
+        return register(name, true);
+    }
+
+    private int register(String name, boolean isNested) {
+        if (sectionCount >= MAX_SECTIONS) {
+            if (!reportedFull) {
+                reportedFull = true;
+                DataLogManager.log("LoopProfiler: Section limit reached, not timing " + name);
+            }
+            return -1;
+        }
+        int id = sectionCount++;
+        names[id] = name;
+        nested[id] = isNested;
+        loopKeys[id] = "LoopProfiler/Sections/" + name + "/LoopMs";
+        maxKeys[id] = "LoopProfiler/Sections/" + name + "/MaxMs";
+        bytesKeys[id] = "LoopProfiler/Sections/" + name + "/AllocatedBytes";
+        return id;
+    }
+
+    /** Starts timing a section; pair with {@link #end(int)}. */
+    public void begin(int id) {
+        if (id >= 0) {
+            beginBytes[id] = allocationTracker.getCurrentThreadAllocatedBytes();
+            beginNanos[id] = System.nanoTime();
+        }
+    }
+
+    /** Stops timing a section and adds the time to this loop's total for it. */
+    public void end(int id) {
+        if (id >= 0) {
+            long now = System.nanoTime();
+            long bytes = allocationTracker.getCurrentThreadAllocatedBytes();
+            loopNanos[id] += now - beginNanos[id];
+            loopBytes[id] += bytes - beginBytes[id];
+            lastMarkNanos = now;
+            lastMarkBytes = bytes;
+        }
+    }
+
+    /** Call at the start of {@code robotPeriodic}. */
+    public void startLoop() {
+        loopStartNanos = System.nanoTime();
+        lastMarkNanos = loopStartNanos;
+        lastMarkBytes = allocationTracker.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < sectionCount; i++) {
+            loopNanos[i] = 0;
+            loopBytes[i] = 0;
+        }
+        begin(schedulerSection);
+    }
+
+    /** Call at the end of {@code robotPeriodic}; publishes this loop's breakdown. */
+    public void endLoop() {
+        end(schedulerSection);
+        long loopTotalNanos = System.nanoTime() - loopStartNanos;
+
+        // Everything inside the scheduler not claimed by a subsystem or command
+        long claimed = 0;
+        long claimedBytes = 0;
+        for (int i = 0; i < sectionCount; i++) {
+            if (i != schedulerSection && i != unaccountedSection && !nested[i]) {
+                claimed += loopNanos[i];
+                claimedBytes += loopBytes[i];
+            }
+        }
+        loopNanos[unaccountedSection] = Math.max(0, loopNanos[schedulerSection] - claimed);
+        loopBytes[unaccountedSection] = Math.max(0, loopBytes[schedulerSection] - claimedBytes);
+
+        if (++blockLoops >= MAX_BLOCK_LOOPS) {
+            blockLoops = 0;
+            System.arraycopy(currentBlockMaxMs, 0, previousBlockMaxMs, 0, sectionCount);
+            for (int i = 0; i < sectionCount; i++) {
+                currentBlockMaxMs[i] = 0.0;
+            }
+        }
+
+        int topOffender = -1;
+        for (int i = 0; i < sectionCount; i++) {
+            double ms = loopNanos[i] / 1e6;
+            currentBlockMaxMs[i] = Math.max(currentBlockMaxMs[i], ms);
+            Logger.recordOutput(loopKeys[i], ms);
+            Logger.recordOutput(maxKeys[i], Math.max(currentBlockMaxMs[i], previousBlockMaxMs[i]));
+            Logger.recordOutput(bytesKeys[i], loopBytes[i]);
+            if (i != schedulerSection && (topOffender < 0 || loopNanos[i] > loopNanos[topOffender])) {
+                topOffender = i;
+            }
+        }
+
+        double loopMs = loopTotalNanos / 1e6;
+        Logger.recordOutput("LoopProfiler/RobotPeriodicMs", loopMs);
+        if (loopMs > LOOP_BUDGET_MS && topOffender >= 0) {
+            overrunCount++;
+            lastOverrunOffender = names[topOffender];
+            Logger.recordOutput("LoopProfiler/OverrunOffender", lastOverrunOffender);
+            SmartDashboard.putString("LoopProfiler/LastOverrunOffender", lastOverrunOffender);
+        }
+        Logger.recordOutput("LoopProfiler/OverrunCount", overrunCount);
+    }
+
+    /* Charges the time since the last scheduler event to the command that just ran */
+    private void mark(Command command, int phase) {
+        long now = System.nanoTime();
+        long bytes = allocationTracker.getCurrentThreadAllocatedBytes();
+        String commandName = command.getName();
+        int[] sections = commandSections.get(commandName);
+        if (sections == null) {
+            String name = "Commands/" + commandName;
+            sections = new int[] {
+                register(name + "/Initialize"),
+                register(name + "/Execute"),
+                register(name + "/End")
+            };
+            commandSections.put(commandName, sections);
+        }
+        int id = sections[phase];
+        if (id >= 0) {
+            loopNanos[id] += now - lastMarkNanos;
+            loopBytes[id] += bytes - lastMarkBytes;
+        }
+        lastMarkNanos = now;
+        lastMarkBytes = bytes;
+    }
+
+    /** Name of the section that took longest in the most recent overrun, or empty. */
+    public String getLastOverrunOffender() {
+        return lastOverrunOffender;
+    }
+}
@@ -0,0 +1,63 @@
+package frc.robot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import choreo.trajectory.SwerveSample;
+import choreo.trajectory.Trajectory;
+import frc.robot.TrajectoryCache.SampledTrajectory;
+
+/**
+ * A trajectory whose length is not a multiple of the sample period ends with a shorter
+ * gap, which must not be interpolated as if it were a full period.
+ */
+class TrajectoryCacheTest {
+    private static final double DURATION = 1.005;
+    private static final double SPEED = 1.0; // m/s along x
+
+    private final double[] out = new double[SampledTrajectory.SAMPLE_SIZE];
+    private final double[] moduleForcesX = new double[4];
+    private final double[] moduleForcesY = new double[4];
+
+    private static SwerveSample sampleAt(double t) {
+        return new SwerveSample(t, SPEED * t, 0.0, 0.0, SPEED, 0.0, 0.0,
+            0.0, 0.0, 0.0, new double[4], new double[4]);
+    }
+
+    private static SampledTrajectory straightLine() {
+        return new SampledTrajectory(new Trajectory<>("Straight",
+            List.of(sampleAt(0.0), sampleAt(0.5), sampleAt(DURATION)), List.of(), List.of()));
+    }
+
+    @Test
+    void endOfTrajectoryReturnsLastSample() {
+        SampledTrajectory trajectory = straightLine();
+
+        trajectory.sample(DURATION, out, moduleForcesX, moduleForcesY);
+        assertEquals(SPEED * DURATION, out[SampledTrajectory.X], 1e-9);
+        assertEquals(0.0, out[SampledTrajectory.VX], 1e-9);
+
+        trajectory.sample(DURATION + 1.0, out, moduleForcesX, moduleForcesY);
+        assertEquals(SPEED * DURATION, out[SampledTrajectory.X], 1e-9);
+    }
+
+    @Test
+    void shortLastSegmentInterpolatesOverItsLength() {
+        SampledTrajectory trajectory = straightLine();
+
+        trajectory.sample(1.0025, out, moduleForcesX, moduleForcesY);
+        assertEquals(SPEED * 1.0025, out[SampledTrajectory.X], 1e-9);
+    }
+
+    @Test
+    void fullSegmentsUnchanged() {
+        SampledTrajectory trajectory = straightLine();
+
+        trajectory.sample(0.4567, out, moduleForcesX, moduleForcesY);
+        assertEquals(SPEED * 0.4567, out[SampledTrajectory.X], 1e-9);
+        assertEquals(SPEED, out[SampledTrajectory.VX], 1e-9);
+    }
+}
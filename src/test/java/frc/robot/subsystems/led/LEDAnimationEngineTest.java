@@ -0,0 +1,137 @@
+package frc.robot.subsystems.led;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.hal.HAL;
+
+/**
+ * The engine streams only changed runs under a write cap, so what the strip shows has to
+ * catch up with every frame rendered, and stop being written once it has.
+ */
+class LEDAnimationEngineTest {
+    private static final int LED_COUNT = 30;
+    private static final int MAX_WRITES = 8;
+
+    /** Remembers what each LED shows and counts the writes it accepts. */
+    private static class FakeHardware extends LEDHardware {
+        final int[] strip = new int[LED_COUNT];
+        boolean accepting = true;
+        int writes = 0;
+
+        FakeHardware() {
+            super(LEDConfig.defaultConfig());
+        }
+
+        @Override
+        public boolean isConfigured() {
+            return true;
+        }
+
+        @Override
+        public boolean setLEDs(int r, int g, int b, int start, int count) {
+            if (!accepting) {
+                return false;
+            }
+            for (int i = start; i < start + count; i++) {
+                strip[i] = LEDFrameBuffer.pack(r, g, b);
+            }
+            writes++;
+            return true;
+        }
+    }
+
+    private FakeHardware hardware;
+    private LEDAnimationEngine engine;
+
+    @BeforeAll
+    static void setup() {
+        HAL.initialize(500, 0);
+    }
+
+    @BeforeEach
+    void createEngine() {
+        hardware = new FakeHardware();
+        engine = new LEDAnimationEngine(hardware, LED_COUNT, 0.05, MAX_WRITES);
+    }
+
+    /* Renders frames at the same time until nothing is written, returning how many it took */
+    private int renderUntilIdle(double time) {
+        for (int frames = 1; frames <= 10; frames++) {
+            int before = hardware.writes;
+            engine.render(time);
+            int written = hardware.writes - before;
+            assertTrue(written <= MAX_WRITES, "Wrote " + written + " runs in one frame");
+            if (written == 0) {
+                return frames;
+            }
+        }
+        throw new AssertionError("Strip never stopped being written");
+    }
+
+    @Test
+    void smallColorChangeIsWritten() {
+        engine.setBase(null, LEDFrameBuffer.pack(100, 0, 0));
+        engine.render(0.0);
+        assertEquals(1, hardware.writes);
+
+        // Within the merge tolerance of what the strip shows, but still a different color
+        engine.setBase(null, LEDFrameBuffer.pack(120, 0, 0));
+        engine.render(0.05);
+        assertEquals(2, hardware.writes);
+        for (int color : hardware.strip) {
+            assertEquals(LEDFrameBuffer.pack(120, 0, 0), color);
+        }
+
+        engine.render(0.1);
+        assertEquals(2, hardware.writes);
+    }
+
+    @Test
+    void denseFrameConvergesUnderWriteCap() {
+        // A hue per LED, held still: more changed runs than one frame may write
+        LEDAnimation rainbow = new LEDAnimations.Rainbow(0.0);
+        engine.setBase(rainbow, 0);
+        int frames = renderUntilIdle(0.0);
+        assertTrue(frames > 2, "Expected the first frame to be spread over several ticks");
+
+        LEDFrameBuffer expected = new LEDFrameBuffer(LED_COUNT);
+        rainbow.render(0.0, expected, 0, LED_COUNT);
+        for (int i = 0; i < LED_COUNT; i++) {
+            int want = expected.get(i);
+            int shown = hardware.strip[i];
+            assertTrue(Math.abs(LEDFrameBuffer.red(want) - LEDFrameBuffer.red(shown)) <= LEDAnimationEngine.MERGE_TOLERANCE
+                && Math.abs(LEDFrameBuffer.green(want) - LEDFrameBuffer.green(shown)) <= LEDAnimationEngine.MERGE_TOLERANCE
+                && Math.abs(LEDFrameBuffer.blue(want) - LEDFrameBuffer.blue(shown)) <= LEDAnimationEngine.MERGE_TOLERANCE,
+                "LED " + i + " shows " + Integer.toHexString(shown) + " for " + Integer.toHexString(want));
+        }
+    }
+
+    @Test
+    void bandedRainbowFitsInOneFrame() {
+        engine.setBase(new LEDAnimations.Rainbow(0.7, LEDConfig.Constants.RAINBOW_BANDS), 0);
+        for (int tick = 0; tick < 40; tick++) {
+            double time = tick * LEDConfig.Constants.ANIMATION_PERIOD;
+            engine.render(time);
+            // Nothing was deferred, so the same frame again writes nothing
+            assertEquals(1, renderUntilIdle(time));
+        }
+    }
+
+    @Test
+    void rejectedWritesAreRetried() {
+        hardware.accepting = false;
+        engine.setBase(null, LEDFrameBuffer.pack(0, 0, 255));
+        engine.render(0.0);
+        assertEquals(0, hardware.writes);
+
+        hardware.accepting = true;
+        engine.render(0.05);
+        assertEquals(1, hardware.writes);
+        assertEquals(LEDFrameBuffer.pack(0, 0, 255), hardware.strip[LED_COUNT - 1]);
+    }
+}
@@ -0,0 +1,90 @@
+package frc.robot.subsystems.led;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Several subsystems share the strip through the compositor, so which layer shows depends
+ * on priority, submission order, expiry and owner alone.
+ */
+class LEDCompositorTest {
+    private static final int LED_COUNT = 10;
+    private static final int BASE = LEDFrameBuffer.pack(0, 0, 50);
+    private static final int RED = LEDFrameBuffer.pack(255, 0, 0);
+    private static final int GREEN = LEDFrameBuffer.pack(0, 255, 0);
+    private static final int BLUE = LEDFrameBuffer.pack(0, 0, 255);
+
+    private final LEDConfig.Zone all = new LEDConfig.Zone(0, LED_COUNT, "All");
+    private final LEDConfig.Zone firstHalf = new LEDConfig.Zone(0, LED_COUNT / 2, "First");
+    private final LEDCompositor compositor = new LEDCompositor();
+    private final LEDFrameBuffer frame = new LEDFrameBuffer(LED_COUNT);
+
+    @Test
+    void noLayersShowsBase() {
+        assertEquals(0, compositor.compose(0.0, BASE, frame));
+        assertEquals(BASE, frame.get(0));
+        assertEquals(BASE, frame.get(LED_COUNT - 1));
+    }
+
+    @Test
+    void higherPriorityPaintsOverLower() {
+        // Submitted high first, so order alone would put the low layer on top
+        compositor.submit("High", firstHalf, 20, RED, Double.POSITIVE_INFINITY);
+        compositor.submit("Low", all, 10, GREEN, Double.POSITIVE_INFINITY);
+
+        assertEquals(2, compositor.compose(0.0, BASE, frame));
+        assertEquals(RED, frame.get(0));
+        assertEquals(GREEN, frame.get(LED_COUNT - 1));
+    }
+
+    @Test
+    void equalPriorityPaintsInSubmissionOrder() {
+        compositor.submit("First", all, 10, RED, Double.POSITIVE_INFINITY);
+        compositor.submit("Second", all, 10, GREEN, Double.POSITIVE_INFINITY);
+        compositor.compose(0.0, BASE, frame);
+        assertEquals(GREEN, frame.get(0));
+
+        // Recoloring keeps a layer's place; moving it to another zone puts it on top
+        compositor.submit("First", all, 10, BLUE, Double.POSITIVE_INFINITY);
+        compositor.compose(0.0, BASE, frame);
+        assertEquals(GREEN, frame.get(0));
+
+        compositor.submit("First", firstHalf, 10, BLUE, Double.POSITIVE_INFINITY);
+        compositor.compose(0.0, BASE, frame);
+        assertEquals(BLUE, frame.get(0));
+        assertEquals(GREEN, frame.get(LED_COUNT - 1));
+    }
+
+    @Test
+    void expiredLayerIsDropped() {
+        compositor.submit("Flash", all, 10, RED, 1.0);
+
+        assertEquals(1, compositor.compose(0.5, BASE, frame));
+        assertEquals(RED, frame.get(0));
+
+        assertEquals(0, compositor.compose(1.0, BASE, frame));
+        assertEquals(BASE, frame.get(0));
+        assertEquals(0, compositor.getLiveLayerCount());
+    }
+
+    @Test
+    void resubmittingReplacesOwnersLayer() {
+        compositor.submit("Vision", firstHalf, 10, RED, Double.POSITIVE_INFINITY);
+        compositor.submit("Vision", all, 10, GREEN, Double.POSITIVE_INFINITY);
+
+        assertEquals(1, compositor.compose(0.0, BASE, frame));
+        assertEquals(GREEN, frame.get(0));
+        assertEquals(GREEN, frame.get(LED_COUNT - 1));
+    }
+
+    @Test
+    void clearRemovesOnlyOwnersLayer() {
+        compositor.submit("Vision", firstHalf, 20, RED, Double.POSITIVE_INFINITY);
+        compositor.submit("Status", all, 10, GREEN, Double.POSITIVE_INFINITY);
+        compositor.clear("Vision");
+
+        assertEquals(1, compositor.compose(0.0, BASE, frame));
+        assertEquals(GREEN, frame.get(0));
+    }
+}
@@ -0,0 +1,107 @@
+package frc.robot.subsystems.vision;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.sun.management.ThreadMXBean;
+
+import frc.robot.subsystems.vision.LimelightHelpers.PoseEstimateBuffer;
+import frc.robot.subsystems.vision.LimelightHelpers.RawDetection;
+import frc.robot.subsystems.vision.LimelightHelpers.RawFiducial;
+
+/**
+ * The array decoders run on the vision listener thread every frame, so they must fill
+ * the caller's buffers without allocating.
+ */
+class LimelightHelpersTest {
+    private static final int WARMUP_CALLS = 20_000;
+    private static final int MEASURED_CALLS = 10_000;
+
+    // Two tags seen: header, then id, txnc, tync, ta, distToCamera, distToRobot, ambiguity per tag
+    private static final double[] BOTPOSE = {
+        3.2, 4.1, 0.0, 0.0, 0.0, 172.5, 24.0, 2, 0.4, 2.1, 0.3,
+        7, -4.2, 1.1, 0.35, 2.0, 2.2, 0.05,
+        8, 6.8, 0.9, 0.28, 2.3, 2.5, 0.08
+    };
+    private static final double[] RAW_FIDUCIALS = {
+        7, -4.2, 1.1, 0.35, 2.0, 2.2, 0.05,
+        8, 6.8, 0.9, 0.28, 2.3, 2.5, 0.08
+    };
+    // Two detections: classId, txnc, tync, ta, then four corners
+    private static final double[] RAW_DETECTIONS = {
+        1, -3.0, 2.0, 0.5, 10, 20, 30, 20, 30, 40, 10,
+        2, 4.0, -1.0, 0.2, 50, 60, 70, 60, 70, 80, 50
+    };
+
+    private static ThreadMXBean threadBean;
+
+    private final PoseEstimateBuffer poseEstimate = new PoseEstimateBuffer();
+    private final RawFiducial[] fiducialPool = pool(new RawFiducial[LimelightHelpers.MAX_POOLED_FIDUCIALS]);
+    private final RawDetection[] detectionPool = pool(new RawDetection[LimelightHelpers.MAX_POOLED_FIDUCIALS]);
+
+    @BeforeAll
+    static void setup() {
+        threadBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    private static RawFiducial[] pool(RawFiducial[] pool) {
+        for (int i = 0; i < pool.length; i++) {
+            pool[i] = new RawFiducial();
+        }
+        return pool;
+    }
+
+    private static RawDetection[] pool(RawDetection[] pool) {
+        for (int i = 0; i < pool.length; i++) {
+            pool[i] = new RawDetection();
+        }
+        return pool;
+    }
+
+    /* Bytes the current thread allocates running the action MEASURED_CALLS times, after warming it up */
+    private static long allocatedBytes(Runnable action) {
+        for (int i = 0; i < WARMUP_CALLS; i++) {
+            action.run();
+        }
+        long before = threadBean.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < MEASURED_CALLS; i++) {
+            action.run();
+        }
+        return threadBean.getCurrentThreadAllocatedBytes() - before;
+    }
+
+    @Test
+    void decodeBotPoseEstimateFillsBuffer() {
+        assertTrue(LimelightHelpers.decodeBotPoseEstimate(BOTPOSE, 2_000_000, poseEstimate));
+        assertEquals(3.2, poseEstimate.x);
+        assertEquals(172.5, poseEstimate.yawDegrees);
+        assertEquals(2, poseEstimate.tagCount);
+        assertEquals(2.0 - 0.024, poseEstimate.timestampSeconds, 1e-9);
+        assertEquals(2, poseEstimate.rawFiducialCount);
+        assertEquals(8, poseEstimate.rawFiducials[1].id);
+        assertEquals(0.08, poseEstimate.rawFiducials[1].ambiguity);
+    }
+
+    @Test
+    void decodeBotPoseEstimateDoesNotAllocate() {
+        assertEquals(0, allocatedBytes(() -> LimelightHelpers.decodeBotPoseEstimate(BOTPOSE, 2_000_000, poseEstimate)));
+    }
+
+    @Test
+    void decodeRawFiducialsDoesNotAllocate() {
+        assertEquals(2, LimelightHelpers.decodeRawFiducials(RAW_FIDUCIALS, fiducialPool));
+        assertEquals(0, allocatedBytes(() -> LimelightHelpers.decodeRawFiducials(RAW_FIDUCIALS, fiducialPool)));
+    }
+
+    @Test
+    void decodeRawDetectionsDoesNotAllocate() {
+        assertEquals(2, LimelightHelpers.decodeRawDetections(RAW_DETECTIONS, detectionPool));
+        assertEquals(0, allocatedBytes(() -> LimelightHelpers.decodeRawDetections(RAW_DETECTIONS, detectionPool)));
+    }
+}
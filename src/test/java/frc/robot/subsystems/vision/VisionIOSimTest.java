@@ -0,0 +1,94 @@
+package frc.robot.subsystems.vision;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.geometry.Translation3d;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import frc.robot.subsystems.vision.VisionIO.PoseObservation;
+import frc.robot.subsystems.vision.VisionIO.VisionIOInputs;
+
+/**
+ * The simulated camera measures the true pose, so fusing its noisy estimates into a
+ * stationary robot's pose must keep the estimate near where the robot really is.
+ */
+class VisionIOSimTest {
+    private static final double LOOP_PERIOD = 0.02;
+    private static final int LOOPS = 1000; // 20 s, about 600 frames
+    // Well outside what fusing 2 cm per-frame noise leaves, well inside where it drifts
+    // if the camera were fed the fused estimate instead
+    private static final double MAX_ERROR_METERS = 0.05;
+
+    // Facing the blue reef from the starting line, with the reef's tags in view
+    private static final Pose2d TRUE_POSE = new Pose2d(2.0, 4.03, Rotation2d.kZero);
+    private static final Transform3d FRONT_CAMERA = new Transform3d(
+        new Translation3d(0.30, 0.0, 0.50), new Rotation3d());
+
+    private final SwerveDriveKinematics kinematics = new SwerveDriveKinematics(
+        new Translation2d(0.3, 0.3), new Translation2d(0.3, -0.3),
+        new Translation2d(-0.3, 0.3), new Translation2d(-0.3, -0.3));
+    private final SwerveModulePosition[] modulePositions = {
+        new SwerveModulePosition(), new SwerveModulePosition(),
+        new SwerveModulePosition(), new SwerveModulePosition()
+    };
+
+    @BeforeAll
+    static void setup() {
+        HAL.initialize(500, 0);
+    }
+
+    @BeforeEach
+    void pauseTime() {
+        SimHooks.pauseTiming();
+    }
+
+    @AfterEach
+    void resumeTime() {
+        SimHooks.resumeTiming();
+    }
+
+    @Test
+    void staticRobotFusedPoseStaysWithinNoise() {
+        VisionIOSim camera = new VisionIOSim(() -> TRUE_POSE, FRONT_CAMERA, VisionIOSim.CameraModel.LIMELIGHT_3, 0);
+        SwerveDrivePoseEstimator estimator = new SwerveDrivePoseEstimator(
+            kinematics, TRUE_POSE.getRotation(), modulePositions, TRUE_POSE);
+        VisionIOInputs inputs = new VisionIOInputs();
+
+        int fused = 0;
+        double worstError = 0.0;
+        for (int i = 0; i < LOOPS; i++) {
+            SimHooks.stepTiming(LOOP_PERIOD);
+            estimator.updateWithTime(Timer.getFPGATimestamp(), TRUE_POSE.getRotation(), modulePositions);
+
+            camera.updateInputs(inputs);
+            for (PoseObservation observation : inputs.poseObservations) {
+                double xyStdDev = VisionSubsystem.getXYStdDev(observation);
+                estimator.addVisionMeasurement(observation.pose(), observation.timestamp(),
+                    VecBuilder.fill(xyStdDev, xyStdDev, 9999999.0));
+                fused++;
+            }
+
+            double error = estimator.getEstimatedPosition().getTranslation()
+                .getDistance(TRUE_POSE.getTranslation());
+            worstError = Math.max(worstError, error);
+        }
+
+        assertTrue(fused > LOOPS / 2, "Only " + fused + " observations; the tags should be in view");
+        assertTrue(worstError < MAX_ERROR_METERS, "Fused pose wandered " + worstError + " m from the true pose");
+    }
+}
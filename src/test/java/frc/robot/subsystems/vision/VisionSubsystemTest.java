@@ -0,0 +1,21 @@
+package frc.robot.subsystems.vision;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+import frc.robot.subsystems.led.LEDState;
+
+/**
+ * Vision shares the LED strip with the robot state, which is only animated while no layer
+ * covers the strip, so vision must not hold a layer while it sees nothing.
+ */
+class VisionSubsystemTest {
+    @Test
+    void ledLayerOnlyShownWithTarget() {
+        assertEquals(LEDState.TARGET_LOCKED, VisionSubsystem.ledLayerFor(VisionState.TARGET_LOCKED));
+        assertEquals(LEDState.TARGET_VISIBLE, VisionSubsystem.ledLayerFor(VisionState.TARGET_VISIBLE));
+        assertNull(VisionSubsystem.ledLayerFor(VisionState.NO_TARGET));
+    }
+}